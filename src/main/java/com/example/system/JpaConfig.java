@@ -1,26 +1,116 @@
 package com.example.system;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.sql.DataSource;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.example.system.utils.ConnectionPoolMetrics;
+import com.example.system.utils.ImportScheduler;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 
 import io.github.cdimascio.dotenv.Dotenv;
 
 @Configuration
 public class JpaConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(JpaConfig.class);
+
     @Bean
-    public DataSource dataSource() {
+    public ConnectionPoolMetrics connectionPoolMetrics() {
+        return new ConnectionPoolMetrics();
+    }
+
+    // Лимиты импорта считаются от размера пула: IMPORT_RESERVED_CONNECTIONS соединений импорты не занимают никогда
+    @Bean(destroyMethod = "shutdown")
+    public ImportScheduler importScheduler() {
+        Dotenv dotenv = Dotenv.load();
+        int poolSize = intValue(dotenv, "DB_POOL_SIZE", 10);
+        int reserved = intValue(dotenv, "IMPORT_RESERVED_CONNECTIONS", (poolSize + 1) / 2);
+        if (poolSize - reserved < 1) {
+            // Импортам не осталось ни одного соединения: молча дать им одно значило бы нарушить резерв
+            throw new IllegalStateException("IMPORT_RESERVED_CONNECTIONS (" + reserved
+                    + ") должно быть меньше DB_POOL_SIZE (" + poolSize + ")");
+        }
+        int maxConcurrent = Math.min(intValue(dotenv, "IMPORT_MAX_CONCURRENT", 2), poolSize - reserved);
+        return new ImportScheduler(maxConcurrent,
+                intValue(dotenv, "IMPORT_MAX_PER_USER", 1),
+                intValue(dotenv, "IMPORT_QUEUE_CAPACITY", 16),
+                longValue(dotenv, "IMPORT_ADMISSION_TIMEOUT_MS", 30_000));
+    }
+
+    @Bean(destroyMethod = "close")
+    public DataSource dataSource(ConnectionPoolMetrics connectionPoolMetrics) {
         // Загрузить переменные из .env
         Dotenv dotenv = Dotenv.load();
 
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName(dotenv.get("DB_DRIVER"));
-        dataSource.setUrl(dotenv.get("DB_URL"));
-        dataSource.setUsername(dotenv.get("DB_USERNAME"));
-        dataSource.setPassword(dotenv.get("DB_PASSWORD"));
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("system-pool");
+        config.setDriverClassName(dotenv.get("DB_DRIVER"));
+        config.setJdbcUrl(dotenv.get("DB_URL"));
+        config.setUsername(dotenv.get("DB_USERNAME"));
+        config.setPassword(dotenv.get("DB_PASSWORD"));
+
+        // Размер пула и таймауты; без ключей в .env берутся значения по умолчанию
+        int poolSize = intValue(dotenv, "DB_POOL_SIZE", 10);
+        config.setMaximumPoolSize(poolSize);
+        config.setMinimumIdle(Math.min(intValue(dotenv, "DB_POOL_MIN_IDLE", poolSize), poolSize));
+        config.setConnectionTimeout(longValue(dotenv, "DB_CONNECTION_TIMEOUT_MS", 5_000));
+        config.setIdleTimeout(longValue(dotenv, "DB_IDLE_TIMEOUT_MS", 600_000));
+        config.setMaxLifetime(longValue(dotenv, "DB_MAX_LIFETIME_MS", 1_800_000));
+        // Соединение, не возвращенное в пул за это время, попадет в лог со стеком места, где его взяли
+        config.setLeakDetectionThreshold(longValue(dotenv, "DB_LEAK_DETECTION_MS", 20_000));
+
+        // Кэш подготовленных выражений драйвера PostgreSQL: повторяющиеся запросы не разбираются заново
+        config.addDataSourceProperty("prepareThreshold", dotenv.get("DB_PREPARE_THRESHOLD", "3"));
+        config.addDataSourceProperty("preparedStatementCacheQueries", dotenv.get("DB_STATEMENT_CACHE_QUERIES", "256"));
+        config.addDataSourceProperty("preparedStatementCacheSizeMiB", dotenv.get("DB_STATEMENT_CACHE_SIZE_MIB", "5"));
+        // Пачки INSERT уходят одним многострочным запросом
+        config.addDataSourceProperty("reWriteBatchedInserts", "true");
+
+        config.setMetricsTrackerFactory(connectionPoolMetrics);
+
+        HikariDataSource dataSource = new HikariDataSource(config);
+        warmUp(dataSource, config.getMinimumIdle());
         return dataSource;
     }
+
+    // Открываем minimumIdle соединений сразу, чтобы первые запросы не платили за подключение к базе
+    private void warmUp(HikariDataSource dataSource, int connections) {
+        List<Connection> borrowed = new ArrayList<>(connections);
+        try {
+            for (int i = 0; i < connections; i++) {
+                borrowed.add(dataSource.getConnection());
+            }
+            logger.info("Connection pool warmed up with {} connections", borrowed.size());
+        } catch (SQLException e) {
+            logger.warn("Connection pool warm-up stopped after {} connections: {}", borrowed.size(), e.getMessage());
+        } finally {
+            for (Connection connection : borrowed) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    logger.debug("Failed to return warm-up connection: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static int intValue(Dotenv dotenv, String key, int defaultValue) {
+        String value = dotenv.get(key);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static long longValue(Dotenv dotenv, String key, long defaultValue) {
+        String value = dotenv.get(key);
+        return value == null || value.isBlank() ? defaultValue : Long.parseLong(value.trim());
+    }
 }
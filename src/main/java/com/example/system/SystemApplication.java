@@ -47,10 +47,20 @@ public class SystemApplication {
         Map<String, Object> properties = new HashMap<>();
         properties.put("eclipselink.weaving", "false");
         properties.put("eclipselink.logging.level", "INFO");
-        properties.put(PersistenceUnitProperties.DDL_GENERATION, PersistenceUnitProperties.CREATE_ONLY);
+        // Недостающие колонки (например, отчет об ошибках в истории импорта) добавляются к существующим таблицам
+        properties.put(PersistenceUnitProperties.DDL_GENERATION, PersistenceUnitProperties.CREATE_OR_EXTEND);
+        // Таблицы создаются при старте, а не при первом запросе: на них опирается SchemaMaintenance
+        properties.put(PersistenceUnitProperties.DEPLOY_ON_STARTUP, "true");
+        // Аннотации Bean Validation проверяет импорт явно (ImportValidator); при записи через JPA сущности
+        // не проверяются, как и до появления провайдера валидации: правила CRUD остаются в сервисах
+        properties.put(PersistenceUnitProperties.VALIDATION_MODE, "NONE");
         // properties.put(PersistenceUnitProperties.DDL_GENERATION_MODE, PersistenceUnitProperties.);
         properties.put("eclipselink.target-database", "PostgreSQL");
         properties.put("eclipselink.schema", "public");
+        // Изменения одного коммита отправляются пакетами; INSERT с IDENTITY EclipseLink все равно выполняет по одному,
+        // поэтому массовый импорт пишет через ImportBatchWriter
+        properties.put(PersistenceUnitProperties.BATCH_WRITING, "JDBC");
+        properties.put(PersistenceUnitProperties.BATCH_WRITING_SIZE, "500");
         return properties;
     }
 
@@ -0,0 +1,130 @@
+package com.example.system.config;
+
+import java.time.YearMonth;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.system.repositories.ImportHistoryPartitionRepository;
+import com.example.system.repositories.ImportRollupRepository;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import jakarta.annotation.PreDestroy;
+
+// То, что EclipseLink не создает сам: служебные таблицы вне JPA, индексы на уже существующих таблицах
+// (CREATE_OR_EXTEND добавляет колонки, но не индексы) и помесячные секции истории импорта.
+// Выполняется при старте, до приема запросов, и затем раз в сутки; все операции идемпотентны
+@Component
+public class SchemaMaintenance implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMaintenance.class);
+    private static final long MAINTENANCE_INTERVAL_HOURS = 24;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ImportRollupRepository importRollupRepository;
+    private final ImportHistoryPartitionRepository importHistoryPartitionRepository;
+    private final TransactionTemplate transactionTemplate;
+    // Сколько месяцев истории импорта хранить, не считая текущего; по умолчанию 0 — хранить всегда.
+    // Удаление старых месяцев включается явно
+    private final int retentionMonths;
+    // На сколько месяцев вперед секции создаются заранее, чтобы записи не попадали в секцию по умолчанию
+    private final int monthsAhead;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "schema-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public SchemaMaintenance(JdbcTemplate jdbcTemplate, ImportRollupRepository importRollupRepository,
+            ImportHistoryPartitionRepository importHistoryPartitionRepository,
+            PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.importRollupRepository = importRollupRepository;
+        this.importHistoryPartitionRepository = importHistoryPartitionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        Dotenv dotenv = Dotenv.load();
+        this.retentionMonths = intValue(dotenv, "IMPORT_HISTORY_RETENTION_MONTHS", 0);
+        this.monthsAhead = intValue(dotenv, "IMPORT_HISTORY_PARTITIONS_AHEAD", 3);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        boolean converted = "r".equals(importHistoryPartitionRepository.tableKind());
+        if (converted) {
+            // Таблица создана EclipseLink как обычная: переносим в секционированную одной транзакцией
+            int moved = transactionTemplate.execute(status -> importHistoryPartitionRepository.convertToPartitioned(monthsAhead));
+            logger.info("Import history converted to monthly partitions: {} rows moved", moved);
+        }
+        // Индексы keyset-пагинации продуктов из @Table(indexes) сущности Product
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_products_name_id ON products (name, id)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_products_price_id ON products (price, id)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_products_rating_id ON products (rating, id)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_products_created_by_id ON products (created_by, id)");
+        // Индексы дедупликации импорта, см. ImportBatchWriter
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_locations_created_by_x ON locations (created_by, x)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_addresses_created_by_zip_code ON addresses (created_by, zip_code)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_persons_created_by_name ON persons (created_by, name)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_organizations_created_by_name ON organizations (created_by, name)");
+        // Индексы создаются на секционированной таблице и наследуются всеми секциями
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_importhistory_user_key ON importhistory (userid, idempotencykey)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_importhistory_user_hash ON importhistory (userid, contenthash)");
+        // Страницы истории пользователя по времени
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_importhistory_user_time ON importhistory (userid, timestamp)");
+        importRollupRepository.createSchema();
+        int backfilled = importRollupRepository.backfillIfEmpty();
+        if (backfilled > 0) {
+            logger.info("Import rollups backfilled from history: {} rows", backfilled);
+        }
+        // Сразу после переноса старые месяцы не удаляются: первый запуск новой версии не должен терять историю
+        maintainPartitions(!converted);
+        scheduler.scheduleAtFixedRate(() -> maintainPartitions(true), MAINTENANCE_INTERVAL_HOURS, MAINTENANCE_INTERVAL_HOURS,
+                TimeUnit.HOURS);
+    }
+
+    // Секции на monthsAhead месяцев вперед и удаление месяцев старше срока хранения. Свертки аналитики
+    // при этом не трогаются: по удаленным месяцам остаются агрегаты
+    void maintainPartitions(boolean applyRetention) {
+        try {
+            YearMonth current = YearMonth.now();
+            for (int i = 0; i <= monthsAhead; i++) {
+                YearMonth month = current.plusMonths(i);
+                if (Boolean.TRUE.equals(transactionTemplate.execute(
+                        status -> importHistoryPartitionRepository.ensurePartition(month)))) {
+                    logger.info("Import history partition for {} created", month);
+                }
+            }
+            if (!applyRetention || retentionMonths <= 0) {
+                return;
+            }
+            YearMonth oldestKept = current.minusMonths(retentionMonths);
+            for (YearMonth month : importHistoryPartitionRepository.findPartitionMonths()) {
+                if (month.isBefore(oldestKept)) {
+                    transactionTemplate.executeWithoutResult(status -> importHistoryPartitionRepository.dropPartition(month));
+                    logger.info("Import history partition for {} dropped by retention ({} months)", month, retentionMonths);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Import history partition maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private static int intValue(Dotenv dotenv, String key, int defaultValue) {
+        String value = dotenv.get(key);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+}
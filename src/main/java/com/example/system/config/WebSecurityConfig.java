@@ -91,6 +91,7 @@ public class WebSecurityConfig {
         configuration.setAllowedOriginPatterns(List.of("*")); // Используйте setAllowedOrigins(List.of("*")) если не требуется allowCredentials
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(List.of("*"));
+        configuration.setExposedHeaders(List.of("ETag")); // Клиенту нужен ETag для условных запросов If-None-Match
         configuration.setAllowCredentials(false); // Учетные данные будут отправляться
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -1,7 +1,13 @@
 package com.example.system.controllers;
 
+import com.example.system.dto.ChangeSetDto;
+import com.example.system.dto.CursorPageDto;
+import com.example.system.dto.CursorPageRequest;
 import com.example.system.entities.Address;
+import com.example.system.services.ChangeLogService;
+import com.example.system.services.ChangeLogService.EntityType;
 import com.example.system.services.AddressService;
+import com.example.system.utils.SerializedResponseCache;
 import com.example.system.implementations.UserDetailsImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -9,7 +15,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.WebRequest;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -17,10 +27,15 @@ import java.util.List;
 public class AddressController {
 
     private final AddressService addressService;
+    private final ChangeLogService changeLogService;
+    private final SerializedResponseCache responseCache;
 
     @Autowired
-    public AddressController(AddressService addressService) {
+    public AddressController(AddressService addressService, ChangeLogService changeLogService,
+            SerializedResponseCache responseCache) {
         this.addressService = addressService;
+        this.changeLogService = changeLogService;
+        this.responseCache = responseCache;
     }
 
     @PostMapping
@@ -31,13 +46,31 @@ public class AddressController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Address>> getAllAddresses() {
-        List<Address> addresses = addressService.getAllAddresses();
-        return new ResponseEntity<>(addresses, HttpStatus.OK);
+    public void getAllAddresses(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // 304 или готовые байты из кэша; к базе и Jackson обращаемся только после изменения таблицы
+        responseCache.writeCollection(EntityType.ADDRESS, addressService::getAllAddresses, request, response);
+    }
+
+    // Постраничная выдача по курсору: ?limit=&sort=&direction=ASC|DESC&cursor=<nextCursor прошлой страницы>
+    @GetMapping("/page")
+    public ResponseEntity<CursorPageDto<Address>> getAddressesPage(CursorPageRequest page,
+            @RequestParam(required = false) Integer createdBy,
+            @RequestParam(required = false) String zipCodePrefix) {
+        CursorPageDto<Address> result = addressService.getAddressesPage(page, createdBy, zipCodePrefix);
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity<ChangeSetDto<Address>> getAddressChanges(@RequestParam long since) {
+        ChangeSetDto<Address> changes = addressService.getAddressChanges(since);
+        return new ResponseEntity<>(changes, HttpStatus.OK);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Address> getAddressById(@PathVariable Integer id) {
+    public ResponseEntity<Address> getAddressById(@PathVariable Integer id, WebRequest request) {
+        if (request.checkNotModified(changeLogService.entityTag(EntityType.ADDRESS))) {
+            return null;
+        }
         Address address = addressService.getAddressById(id);
         return new ResponseEntity<>(address, HttpStatus.OK);
     }
@@ -1,79 +1,77 @@
 package com.example.system.controllers;
 
-import java.util.List;
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.example.system.entities.Organization;
-import com.example.system.entities.Person;
-import com.example.system.entities.Product;
+import com.example.system.dto.ImportResultDto;
 import com.example.system.implementations.UserDetailsImpl;
-import com.example.system.repositories.PersonRepository;
-import com.example.system.services.ImportHistoryService;
-import com.example.system.services.OrganizationService;
-import com.example.system.services.PersonService;
-import com.example.system.services.ProductService;
+import com.example.system.services.BulkImportService;
+import com.example.system.services.BulkImportService.ImportFormat;
+import com.example.system.services.BulkImportService.ImportOptions;
+import com.example.system.utils.ImportScheduler;
+
+import jakarta.servlet.http.HttpServletRequest;
 
 @RestController
 @RequestMapping("/api/import")
 public class BulkImportController {
 
-    private final ProductService productService;
-    private final PersonService personService;
-    private final OrganizationService organizationService;
-    private final ImportHistoryService importHistoryService;
+    private final BulkImportService bulkImportService;
+    private final ImportScheduler importScheduler;
 
-    public BulkImportController(ProductService productService,
-            PersonService personService,
-            OrganizationService organizationService,
-            ImportHistoryService importHistoryService
-    ) {
-        this.productService = productService;
-        this.personService = personService;
-        this.organizationService = organizationService;
-        this.importHistoryService = importHistoryService;
+    public BulkImportController(BulkImportService bulkImportService, ImportScheduler importScheduler) {
+        this.bulkImportService = bulkImportService;
+        this.importScheduler = importScheduler;
     }
 
+    // Транзакциями управляет сервис: весь импорт одной транзакцией или коммит по пачкам (transactionScope=chunk).
+    // Ответ — итог с отчетом об ошибочных строках; он же сохраняется в историю импорта
     @PostMapping("/bulk-products")
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
-    public ResponseEntity<String> importBulkProducts(@RequestBody List<Product> products) {
-        try {
-            int successCount = 0;  // Счетчик успешно добавленных продуктов
-
-            for (Product product : products) {
-                // Валидация данных перед импортом
-                if (product.getOwner() == null || product.getManufacturer() == null) {
-                    throw new IllegalArgumentException("Владелец или производитель не могут быть null.");
-                }
-
-                // Создание владельца, если он не существует
-                Person owner = personService.createPerson(product.getOwner(), getCurrentUserId());
-                product.setOwner(owner);
-
-                // Создание производителя, если он не существует
-                Organization manufacturer = organizationService.createOrganization(product.getManufacturer(), getCurrentUserId());
-                product.setManufacturer(manufacturer);
-
-                // Создание продукта
-                productService.createProduct(product, getCurrentUserId());
-                successCount++;  // Увеличиваем счетчик успешных добавлений
-            }
-
-            // Запись в историю импорта (например, в базу данных)
-            importHistoryService.saveImportHistory(getCurrentUserId(), successCount);
-
-            return ResponseEntity.ok("Продукты успешно импортированы");
-        } catch (Exception e) {
-            // Логирование ошибки и откат всех изменений
+    public ResponseEntity<?> importBulkProducts(HttpServletRequest request,
+            @RequestParam(defaultValue = "batch") String mode,
+            @RequestParam(defaultValue = "false") boolean reuseExisting,
+            @RequestParam(defaultValue = "all_or_nothing") String errorPolicy,
+            @RequestParam(defaultValue = "import") String transactionScope,
+            @RequestParam(defaultValue = "1000") int chunkSize,
+            @RequestParam(defaultValue = "false") boolean dryRun,
+            @RequestParam(defaultValue = "0") int maxErrors,
+            @RequestParam(required = false) String columns,
+            @RequestParam(defaultValue = ",") char delimiter,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        ImportOptions options = ImportOptions.of(mode, reuseExisting, errorPolicy, transactionScope, chunkSize,
+                dryRun, maxErrors);
+        // Формат — по Content-Type; для CSV колонки выгрузки сопоставляются с полями продукта через columns
+        options.setFormat(ImportFormat.fromContentType(request.getContentType()));
+        options.setColumnMapping(ImportOptions.parseColumnMapping(columns));
+        options.setCsvDelimiter(delimiter);
+        // Повтор с тем же ключом или тем же телом возвращает итог уже выполненного импорта
+        options.setIdempotencyKey(idempotencyKey);
+        Integer currentUserId = getCurrentUserId();
+        // Импорт начинается только после допуска планировщиком; тело до этого не читается
+        try (ImportScheduler.Ticket slot = importScheduler.acquire(currentUserId)) {
+            // Весь граф пишется пакетными INSERT (или через COPY при mode=copy), а не отдельным save на каждую сущность
+            // Тело не собирается в список целиком: продукты читаются потоком и обрабатываются пачками
+            ImportResultDto result = bulkImportService.runImport(request.getInputStream(), currentUserId, options,
+                    rows -> {
+                    });
+            HttpStatus status = "ERROR".equals(result.getStatus()) ? HttpStatus.UNPROCESSABLE_ENTITY : HttpStatus.OK;
+            return ResponseEntity.status(status).body(result);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Импорт прерван");
+        } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Ошибка импорта");
         }
     }
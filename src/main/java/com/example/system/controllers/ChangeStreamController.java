@@ -0,0 +1,27 @@
+package com.example.system.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.system.services.ChangeStreamService;
+
+@RestController
+@RequestMapping("/api/stream")
+public class ChangeStreamController {
+
+    private final ChangeStreamService changeStreamService;
+
+    @Autowired
+    public ChangeStreamController(ChangeStreamService changeStreamService) {
+        this.changeStreamService = changeStreamService;
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        return changeStreamService.subscribe();
+    }
+}
@@ -1,36 +1,113 @@
 package com.example.system.controllers;
 
+import java.io.IOException;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.example.system.dto.ChangeSetDto;
+import com.example.system.dto.CursorPageDto;
+import com.example.system.dto.CursorPageRequest;
+import com.example.system.dto.ImportRollupDto;
 import com.example.system.entities.ImportHistory;
+import com.example.system.services.ChangeLogService;
+import com.example.system.services.ChangeLogService.EntityType;
+import com.example.system.services.ImportAnalyticsService;
+import com.example.system.services.ImportAnalyticsService.Granularity;
 import com.example.system.services.ImportHistoryService;
+import com.example.system.utils.SerializedResponseCache;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 @RequestMapping("/api/import-history")
 public class ImportHistoryController {
 
     private final ImportHistoryService importHistoryService;
+    private final ImportAnalyticsService importAnalyticsService;
+    private final ChangeLogService changeLogService;
+    private final SerializedResponseCache responseCache;
 
     @Autowired
-    public ImportHistoryController(ImportHistoryService importHistoryService) {
+    public ImportHistoryController(ImportHistoryService importHistoryService,
+            ImportAnalyticsService importAnalyticsService, ChangeLogService changeLogService,
+            SerializedResponseCache responseCache) {
         this.importHistoryService = importHistoryService;
+        this.importAnalyticsService = importAnalyticsService;
+        this.changeLogService = changeLogService;
+        this.responseCache = responseCache;
     }
 
     @GetMapping("/all")
-    public ResponseEntity<List<ImportHistory>> getAllImportHistory() {
-        List<ImportHistory> history = importHistoryService.getImportHistory();
-        return ResponseEntity.ok(history);
+    public void getAllImportHistory(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        responseCache.writeCollection(EntityType.IMPORT_HISTORY, importHistoryService::getImportHistory, request, response);
+    }
+
+    // Сырые записи за период [from, to): ?userId=1&from=2024-01-01T00:00:00Z&sort=timestamp&cursor=...
+    @GetMapping("/page")
+    public ResponseEntity<CursorPageDto<ImportHistory>> getImportHistoryPage(CursorPageRequest page,
+            @RequestParam(required = false) Integer userId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to) {
+        CursorPageDto<ImportHistory> result = importHistoryService.getImportHistoryPage(page, userId, status, from, to);
+        return ResponseEntity.ok(result);
+    }
+
+    // Импорты, строки, доля успешных и p50/p95 длительности по пользователю за каждый час или день.
+    // По умолчанию — последние сутки по часам или последние 30 дней по дням
+    @GetMapping("/rollups")
+    public ResponseEntity<List<ImportRollupDto>> getRollups(
+            @RequestParam(defaultValue = "hour") String granularity,
+            @RequestParam(required = false) Integer userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to) {
+        Granularity parsed = Granularity.parse(granularity);
+        Date end = to != null ? to : new Date();
+        Date start = from != null ? from : defaultStart(parsed, end);
+        return ResponseEntity.ok(importAnalyticsService.getRollups(parsed, userId, start, end));
+    }
+
+    // Те же показатели одним итогом за период по каждому пользователю
+    @GetMapping("/rollups/summary")
+    public ResponseEntity<List<ImportRollupDto>> getRollupSummary(
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(required = false) Integer userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to) {
+        Granularity parsed = Granularity.parse(granularity);
+        Date end = to != null ? to : new Date();
+        Date start = from != null ? from : defaultStart(parsed, end);
+        return ResponseEntity.ok(importAnalyticsService.getSummary(parsed, userId, start, end));
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity<ChangeSetDto<ImportHistory>> getImportHistoryChanges(@RequestParam long since) {
+        ChangeSetDto<ImportHistory> changes = importHistoryService.getImportHistoryChanges(since);
+        return ResponseEntity.ok(changes);
+    }
+
+    private static Date defaultStart(Granularity granularity, Date end) {
+        long days = granularity == Granularity.HOUR ? 1 : 30;
+        return new Date(end.getTime() - TimeUnit.DAYS.toMillis(days));
     }
 
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<ImportHistory>> getImportHistoryByUserId(@PathVariable int userId) {
+    public ResponseEntity<List<ImportHistory>> getImportHistoryByUserId(@PathVariable int userId, WebRequest request) {
+        if (request.checkNotModified(changeLogService.entityTag(EntityType.IMPORT_HISTORY))) {
+            return null;
+        }
         List<ImportHistory> history = importHistoryService.getImportHistoryByUserId(userId);
         return ResponseEntity.ok(history);
     }
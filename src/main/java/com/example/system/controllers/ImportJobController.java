@@ -0,0 +1,86 @@
+package com.example.system.controllers;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.system.dto.ImportJobDto;
+import com.example.system.implementations.UserDetailsImpl;
+import com.example.system.services.BulkImportService.ImportFormat;
+import com.example.system.services.BulkImportService.ImportOptions;
+import com.example.system.services.ImportJobService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+@RestController
+@RequestMapping("/api/import/jobs")
+public class ImportJobController {
+
+    private final ImportJobService importJobService;
+
+    @Autowired
+    public ImportJobController(ImportJobService importJobService) {
+        this.importJobService = importJobService;
+    }
+
+    // Сразу возвращает id задачи; сам импорт выполняется в фоне
+    @PostMapping
+    public ResponseEntity<?> submitJob(HttpServletRequest request,
+            @RequestParam(defaultValue = "batch") String mode,
+            @RequestParam(defaultValue = "false") boolean reuseExisting,
+            @RequestParam(defaultValue = "all_or_nothing") String errorPolicy,
+            @RequestParam(defaultValue = "import") String transactionScope,
+            @RequestParam(defaultValue = "1000") int chunkSize,
+            @RequestParam(defaultValue = "false") boolean dryRun,
+            @RequestParam(defaultValue = "0") int maxErrors,
+            @RequestParam(required = false) String columns,
+            @RequestParam(defaultValue = ",") char delimiter,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) throws IOException {
+        ImportOptions options = ImportOptions.of(mode, reuseExisting, errorPolicy, transactionScope, chunkSize,
+                dryRun, maxErrors);
+        // Формат — по Content-Type; для CSV колонки выгрузки сопоставляются с полями продукта через columns
+        options.setFormat(ImportFormat.fromContentType(request.getContentType()));
+        options.setColumnMapping(ImportOptions.parseColumnMapping(columns));
+        options.setCsvDelimiter(delimiter);
+        // Повтор с тем же ключом или тем же телом возвращает итог уже выполненного импорта
+        options.setIdempotencyKey(idempotencyKey);
+        try {
+            ImportJobDto job = importJobService.submit(request.getInputStream(), getCurrentUserId(), options);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Очередь импорта переполнена");
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ImportJobDto> getJob(@PathVariable String id) {
+        return ResponseEntity.ok(importJobService.getJob(id, getCurrentUserId()));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<ImportJobDto> cancelJob(@PathVariable String id) {
+        return ResponseEntity.ok(importJobService.cancel(id, getCurrentUserId()));
+    }
+
+    private Integer getCurrentUserId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || auth.getPrincipal() == null || !(auth.getPrincipal() instanceof UserDetailsImpl)) {
+            throw new IllegalStateException("Пользователь не аутентифицирован или данные некорректны");
+        }
+        UserDetailsImpl userDetails = (UserDetailsImpl) auth.getPrincipal();
+        return userDetails.getId(); // Возвращаем ID пользователя
+    }
+}
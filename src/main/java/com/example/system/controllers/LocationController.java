@@ -1,7 +1,13 @@
 package com.example.system.controllers;
 
+import com.example.system.dto.ChangeSetDto;
+import com.example.system.dto.CursorPageDto;
+import com.example.system.dto.CursorPageRequest;
 import com.example.system.entities.Location;
+import com.example.system.services.ChangeLogService;
+import com.example.system.services.ChangeLogService.EntityType;
 import com.example.system.services.LocationService;
+import com.example.system.utils.SerializedResponseCache;
 import com.example.system.implementations.UserDetailsImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -9,7 +15,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.WebRequest;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -17,10 +27,15 @@ import java.util.List;
 public class LocationController {
 
     private final LocationService locationService;
+    private final ChangeLogService changeLogService;
+    private final SerializedResponseCache responseCache;
 
     @Autowired
-    public LocationController(LocationService locationService) {
+    public LocationController(LocationService locationService, ChangeLogService changeLogService,
+            SerializedResponseCache responseCache) {
         this.locationService = locationService;
+        this.changeLogService = changeLogService;
+        this.responseCache = responseCache;
     }
 
     @PostMapping
@@ -31,13 +46,30 @@ public class LocationController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Location>> getAllLocations() {
-        List<Location> locations = locationService.getAllLocations();
-        return new ResponseEntity<>(locations, HttpStatus.OK);
+    public void getAllLocations(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // 304 или готовые байты из кэша; к базе и Jackson обращаемся только после изменения таблицы
+        responseCache.writeCollection(EntityType.LOCATION, locationService::getAllLocations, request, response);
+    }
+
+    // Постраничная выдача по курсору: ?limit=&sort=&direction=ASC|DESC&cursor=<nextCursor прошлой страницы>
+    @GetMapping("/page")
+    public ResponseEntity<CursorPageDto<Location>> getLocationsPage(CursorPageRequest page,
+            @RequestParam(required = false) Integer createdBy) {
+        CursorPageDto<Location> result = locationService.getLocationsPage(page, createdBy);
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity<ChangeSetDto<Location>> getLocationChanges(@RequestParam long since) {
+        ChangeSetDto<Location> changes = locationService.getLocationChanges(since);
+        return new ResponseEntity<>(changes, HttpStatus.OK);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Location> getLocationById(@PathVariable Integer id) {
+    public ResponseEntity<Location> getLocationById(@PathVariable Integer id, WebRequest request) {
+        if (request.checkNotModified(changeLogService.entityTag(EntityType.LOCATION))) {
+            return null;
+        }
         Location location = locationService.getLocationById(id);
         return new ResponseEntity<>(location, HttpStatus.OK);
     }
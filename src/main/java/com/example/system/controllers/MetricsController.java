@@ -0,0 +1,73 @@
+package com.example.system.controllers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.system.services.ChangeStreamService;
+import com.example.system.services.ImportHistoryService;
+import com.example.system.utils.ConnectionPoolMetrics;
+import com.example.system.utils.ImportScheduler;
+import com.example.system.utils.PrincipalCache;
+import com.example.system.utils.ReadCoalescingAspect;
+import com.example.system.utils.SerializedResponseCache;
+
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    private final ReadCoalescingAspect readCoalescingAspect;
+    private final SerializedResponseCache responseCache;
+    private final ChangeStreamService changeStreamService;
+    private final ConnectionPoolMetrics connectionPoolMetrics;
+    private final PrincipalCache principalCache;
+    private final ImportScheduler importScheduler;
+    private final ImportHistoryService importHistoryService;
+
+    @Autowired
+    public MetricsController(ReadCoalescingAspect readCoalescingAspect,
+            SerializedResponseCache responseCache,
+            ChangeStreamService changeStreamService,
+            ConnectionPoolMetrics connectionPoolMetrics,
+            PrincipalCache principalCache,
+            ImportScheduler importScheduler,
+            ImportHistoryService importHistoryService) {
+        this.readCoalescingAspect = readCoalescingAspect;
+        this.responseCache = responseCache;
+        this.changeStreamService = changeStreamService;
+        this.connectionPoolMetrics = connectionPoolMetrics;
+        this.principalCache = principalCache;
+        this.importScheduler = importScheduler;
+        this.importHistoryService = importHistoryService;
+    }
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("readCoalescing", Map.of(
+                "calls", readCoalescingAspect.getCalls(),
+                "executions", readCoalescingAspect.getExecutions(),
+                "ratio", readCoalescingAspect.getCoalescingRatio()));
+        metrics.put("responseCache", Map.of(
+                "hits", responseCache.getHits(),
+                "rebuilds", responseCache.getRebuilds()));
+        metrics.put("sseSubscribers", changeStreamService.getSubscriberCount());
+        metrics.put("connectionPool", connectionPoolMetrics.snapshot());
+        metrics.put("principalCache", Map.of(
+                "hits", principalCache.getHits(),
+                "misses", principalCache.getMisses(),
+                "size", principalCache.size()));
+        // Очередь и ожидание допуска синхронных импортов и фоновых задач
+        metrics.put("importScheduler", importScheduler.snapshot());
+        metrics.put("importHistoryWriter", Map.of(
+                "pending", importHistoryService.getPendingCount(),
+                "written", importHistoryService.getWrittenCount(),
+                "dropped", importHistoryService.getDroppedCount()));
+        return ResponseEntity.ok(metrics);
+    }
+}
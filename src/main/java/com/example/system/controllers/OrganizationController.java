@@ -1,7 +1,13 @@
 package com.example.system.controllers;
 
+import com.example.system.dto.ChangeSetDto;
+import com.example.system.dto.CursorPageDto;
+import com.example.system.dto.CursorPageRequest;
 import com.example.system.entities.Organization;
+import com.example.system.services.ChangeLogService;
+import com.example.system.services.ChangeLogService.EntityType;
 import com.example.system.services.OrganizationService;
+import com.example.system.utils.SerializedResponseCache;
 import com.example.system.implementations.UserDetailsImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -9,7 +15,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.WebRequest;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -17,10 +27,15 @@ import java.util.List;
 public class OrganizationController {
 
     private final OrganizationService organizationService;
+    private final ChangeLogService changeLogService;
+    private final SerializedResponseCache responseCache;
 
     @Autowired
-    public OrganizationController(OrganizationService organizationService) {
+    public OrganizationController(OrganizationService organizationService, ChangeLogService changeLogService,
+            SerializedResponseCache responseCache) {
         this.organizationService = organizationService;
+        this.changeLogService = changeLogService;
+        this.responseCache = responseCache;
     }
 
     @PostMapping
@@ -31,13 +46,31 @@ public class OrganizationController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Organization>> getAllOrganizations() {
-        List<Organization> organizations = organizationService.getAllOrganizations();
-        return new ResponseEntity<>(organizations, HttpStatus.OK);
+    public void getAllOrganizations(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // 304 или готовые байты из кэша; к базе и Jackson обращаемся только после изменения таблицы
+        responseCache.writeCollection(EntityType.ORGANIZATION, organizationService::getAllOrganizations, request, response);
+    }
+
+    // Постраничная выдача по курсору: ?limit=&sort=&direction=ASC|DESC&cursor=<nextCursor прошлой страницы>
+    @GetMapping("/page")
+    public ResponseEntity<CursorPageDto<Organization>> getOrganizationsPage(CursorPageRequest page,
+            @RequestParam(required = false) Integer createdBy,
+            @RequestParam(required = false) String namePrefix) {
+        CursorPageDto<Organization> result = organizationService.getOrganizationsPage(page, createdBy, namePrefix);
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity<ChangeSetDto<Organization>> getOrganizationChanges(@RequestParam long since) {
+        ChangeSetDto<Organization> changes = organizationService.getOrganizationChanges(since);
+        return new ResponseEntity<>(changes, HttpStatus.OK);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Organization> getOrganizationById(@PathVariable Integer id) {
+    public ResponseEntity<Organization> getOrganizationById(@PathVariable Integer id, WebRequest request) {
+        if (request.checkNotModified(changeLogService.entityTag(EntityType.ORGANIZATION))) {
+            return null;
+        }
         Organization organization = organizationService.getOrganizationById(id);
         return new ResponseEntity<>(organization, HttpStatus.OK);
     }
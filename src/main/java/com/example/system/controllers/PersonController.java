@@ -1,15 +1,26 @@
 package com.example.system.controllers;
 
+import com.example.system.dto.ChangeSetDto;
+import com.example.system.dto.CursorPageDto;
+import com.example.system.dto.CursorPageRequest;
+import com.example.system.entities.Country;
 import com.example.system.entities.Person;
+import com.example.system.services.ChangeLogService;
+import com.example.system.services.ChangeLogService.EntityType;
 import com.example.system.services.PersonService;
+import com.example.system.utils.SerializedResponseCache;
 import com.example.system.implementations.UserDetailsImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.bind.annotation.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -17,10 +28,15 @@ import java.util.List;
 public class PersonController {
 
     private final PersonService personService;
+    private final ChangeLogService changeLogService;
+    private final SerializedResponseCache responseCache;
 
     @Autowired
-    public PersonController(PersonService personService) {
+    public PersonController(PersonService personService, ChangeLogService changeLogService,
+            SerializedResponseCache responseCache) {
         this.personService = personService;
+        this.changeLogService = changeLogService;
+        this.responseCache = responseCache;
     }
 
     @PostMapping
@@ -31,13 +47,32 @@ public class PersonController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Person>> getAllPersons() {
-        List<Person> persons = personService.getAllPersons();
-        return new ResponseEntity<>(persons, HttpStatus.OK);
+    public void getAllPersons(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // 304 или готовые байты из кэша; к базе и Jackson обращаемся только после изменения таблицы
+        responseCache.writeCollection(EntityType.PERSON, personService::getAllPersons, request, response);
+    }
+
+    // Постраничная выдача по курсору: ?limit=&sort=&direction=ASC|DESC&cursor=<nextCursor прошлой страницы>
+    @GetMapping("/page")
+    public ResponseEntity<CursorPageDto<Person>> getPersonsPage(CursorPageRequest page,
+            @RequestParam(required = false) Integer createdBy,
+            @RequestParam(required = false) Country nationality,
+            @RequestParam(required = false) String namePrefix) {
+        CursorPageDto<Person> result = personService.getPersonsPage(page, createdBy, nationality, namePrefix);
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity<ChangeSetDto<Person>> getPersonChanges(@RequestParam long since) {
+        ChangeSetDto<Person> changes = personService.getPersonChanges(since);
+        return new ResponseEntity<>(changes, HttpStatus.OK);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Person> getPersonById(@PathVariable Integer id) {
+    public ResponseEntity<Person> getPersonById(@PathVariable Integer id, WebRequest request) {
+        if (request.checkNotModified(changeLogService.entityTag(EntityType.PERSON))) {
+            return null;
+        }
         Person person = personService.getPersonById(id);
         return new ResponseEntity<>(person, HttpStatus.OK);
     }
@@ -1,16 +1,26 @@
 package com.example.system.controllers;
 
+import com.example.system.dto.ChangeSetDto;
+import com.example.system.dto.CursorPageDto;
+import com.example.system.dto.CursorPageRequest;
 import com.example.system.entities.Product;
 import com.example.system.entities.UnitOfMeasure;
+import com.example.system.services.ChangeLogService;
+import com.example.system.services.ChangeLogService.EntityType;
 import com.example.system.services.ProductService;
+import com.example.system.utils.SerializedResponseCache;
 import com.example.system.implementations.UserDetailsImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.bind.annotation.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -18,10 +28,15 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final ChangeLogService changeLogService;
+    private final SerializedResponseCache responseCache;
 
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ChangeLogService changeLogService,
+            SerializedResponseCache responseCache) {
         this.productService = productService;
+        this.changeLogService = changeLogService;
+        this.responseCache = responseCache;
     }
 
     @PostMapping
@@ -32,13 +47,34 @@ public class ProductController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts() {
-        List<Product> products = productService.getAllProducts();
-        return new ResponseEntity<>(products, HttpStatus.OK);
+    public void getAllProducts(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // 304 или готовые байты из кэша; к базе и Jackson обращаемся только после изменения таблицы
+        responseCache.writeCollection(EntityType.PRODUCT, productService::getAllProducts, request, response);
+    }
+
+    // Постраничная выдача по курсору: ?limit=&sort=&direction=ASC|DESC&cursor=<nextCursor прошлой страницы>
+    @GetMapping("/page")
+    public ResponseEntity<CursorPageDto<Product>> getProductsPage(CursorPageRequest page,
+            @RequestParam(required = false) Integer createdBy,
+            @RequestParam(required = false) UnitOfMeasure unitOfMeasure,
+            @RequestParam(required = false) Long minPrice,
+            @RequestParam(required = false) Long maxPrice,
+            @RequestParam(required = false) String namePrefix) {
+        CursorPageDto<Product> result = productService.getProductsPage(page, createdBy, unitOfMeasure, minPrice, maxPrice, namePrefix);
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity<ChangeSetDto<Product>> getProductChanges(@RequestParam long since) {
+        ChangeSetDto<Product> changes = productService.getProductChanges(since);
+        return new ResponseEntity<>(changes, HttpStatus.OK);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Integer id) {
+    public ResponseEntity<Product> getProductById(@PathVariable Integer id, WebRequest request) {
+        if (request.checkNotModified(changeLogService.entityTag(EntityType.PRODUCT))) {
+            return null;
+        }
         Product product = productService.getProductById(id);
         return new ResponseEntity<>(product, HttpStatus.OK);
     }
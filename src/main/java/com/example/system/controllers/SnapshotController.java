@@ -0,0 +1,43 @@
+package com.example.system.controllers;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import com.example.system.dto.ChangeSetDto;
+import com.example.system.services.SnapshotService;
+
+@RestController
+@RequestMapping("/api/snapshot")
+public class SnapshotController {
+
+    private final SnapshotService snapshotService;
+
+    @Autowired
+    public SnapshotController(SnapshotService snapshotService) {
+        this.snapshotService = snapshotService;
+    }
+
+    @GetMapping
+    public ResponseEntity<Map<String, ChangeSetDto<?>>> getSnapshot(
+            @RequestParam(defaultValue = "0") long productsSince,
+            @RequestParam(defaultValue = "0") long organizationsSince,
+            @RequestParam(defaultValue = "0") long personsSince,
+            @RequestParam(defaultValue = "0") long addressesSince,
+            @RequestParam(defaultValue = "0") long locationsSince,
+            @RequestParam(defaultValue = "0") long importHistorySince,
+            WebRequest request) {
+        if (request.checkNotModified(snapshotService.getSnapshotTag())) {
+            return null;
+        }
+        Map<String, ChangeSetDto<?>> snapshot = snapshotService.getSnapshot(productsSince, organizationsSince,
+                personsSince, addressesSince, locationsSince, importHistorySince);
+        return ResponseEntity.ok(snapshot);
+    }
+}
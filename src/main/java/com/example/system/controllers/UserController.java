@@ -1,7 +1,12 @@
 package com.example.system.controllers;
 
+import com.example.system.dto.CursorPageDto;
+import com.example.system.dto.CursorPageRequest;
 import com.example.system.dto.UserDto;
+import com.example.system.dto.UserSummaryDto;
+import com.example.system.entities.Product;
 import com.example.system.entities.User;
+import com.example.system.implementations.UserDetailsImpl;
 import com.example.system.services.UserService;
 import com.example.system.utils.JwtUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,14 +43,14 @@ public class UserController {
         SecurityContextHolder.getContext().setAuthentication(authentication);
         String jwt = jwtUtils.generateJwtToken(authentication);
 
-        // Находим пользователя после аутентификации
-        User user = userService.findByUsername(loginRequest.getUsername());
+        // Данные пользователя уже загружены при аутентификации, повторно в базу не идем
+        UserDetailsImpl user = (UserDetailsImpl) authentication.getPrincipal();
         
         // Создаем объект UserDto для ответа без пароля и с добавленным JWT
         UserDto userDto = new UserDto(
             user.getUsername(),
             null, // Не передаем пароль в ответе
-            user.getRole().toString(),
+            user.getRole(),
             user.isApproved(),
             null, // Продукты пока оставим null или добавим, если потребуется
             user.getId(),
@@ -80,11 +85,17 @@ public class UserController {
 
 
     @GetMapping("/users")
-    public ResponseEntity<List<User>> getAllUsers() {
-        List<User> users = userService.getAllUsers();
+    public ResponseEntity<List<UserSummaryDto>> getAllUsers() {
+        List<UserSummaryDto> users = userService.getAllUsers();
         return new ResponseEntity<>(users, HttpStatus.OK);
     }
 
+    @GetMapping("/{id}/products")
+    public ResponseEntity<CursorPageDto<Product>> getUserProducts(@PathVariable Integer id, CursorPageRequest page) {
+        CursorPageDto<Product> products = userService.findProductsByUserId(id, page);
+        return new ResponseEntity<>(products, HttpStatus.OK);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<User> updateUser(@PathVariable Integer id, @RequestBody User updatedUser) {
         User user = userService.updateUser(id, updatedUser);
@@ -106,8 +117,8 @@ public class UserController {
 
     @GetMapping("/pendingAdmins")
     @PreAuthorize("hasAuthority('ADMIN') and principal.approved")
-    public ResponseEntity<List<User>> getPendingAdmins() {
-        List<User> pendingAdmins = userService.getPendingAdmins();
+    public ResponseEntity<List<UserSummaryDto>> getPendingAdmins() {
+        List<UserSummaryDto> pendingAdmins = userService.getPendingAdmins();
         return new ResponseEntity<>(pendingAdmins, HttpStatus.OK);
     }
 
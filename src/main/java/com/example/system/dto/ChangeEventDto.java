@@ -0,0 +1,49 @@
+package com.example.system.dto;
+
+public class ChangeEventDto {
+    private String entity;
+    private Integer id;
+    private String operation; // UPSERT или DELETE
+    private long version;
+
+    public ChangeEventDto() {}
+
+    public ChangeEventDto(String entity, Integer id, String operation, long version) {
+        this.entity = entity;
+        this.id = id;
+        this.operation = operation;
+        this.version = version;
+    }
+
+    public String getEntity() {
+        return entity;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setEntity(String entity) {
+        this.entity = entity;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
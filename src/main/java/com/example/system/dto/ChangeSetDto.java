@@ -0,0 +1,51 @@
+package com.example.system.dto;
+
+import java.util.List;
+
+public class ChangeSetDto<T> {
+    private long version; // версия, которую клиент передает в следующем запросе как since
+    private boolean reset; // true, если дельту построить нельзя и upserts содержит всю таблицу
+    private List<T> upserts;
+    private List<Integer> deletes;
+
+    public ChangeSetDto() {}
+
+    public ChangeSetDto(long version, boolean reset, List<T> upserts, List<Integer> deletes) {
+        this.version = version;
+        this.reset = reset;
+        this.upserts = upserts;
+        this.deletes = deletes;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isReset() {
+        return reset;
+    }
+
+    public List<T> getUpserts() {
+        return upserts;
+    }
+
+    public List<Integer> getDeletes() {
+        return deletes;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public void setReset(boolean reset) {
+        this.reset = reset;
+    }
+
+    public void setUpserts(List<T> upserts) {
+        this.upserts = upserts;
+    }
+
+    public void setDeletes(List<Integer> deletes) {
+        this.deletes = deletes;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.system.dto;
+
+import java.util.List;
+
+public class CursorPageDto<T> {
+    private List<T> items;
+    private String nextCursor; // передается в следующий запрос как cursor; null на последней странице
+    private boolean hasNext;
+
+    public CursorPageDto() {}
+
+    public CursorPageDto(List<T> items, String nextCursor, boolean hasNext) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasNext = hasNext;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.system.dto;
+
+import org.springframework.data.domain.Sort;
+
+// Параметры страницы из query string: ?cursor=...&limit=50&sort=price&direction=DESC
+public record CursorPageRequest(String cursor, Integer limit, String sort, Sort.Direction direction) {
+}
@@ -0,0 +1,125 @@
+package com.example.system.dto;
+
+import java.util.Date;
+
+public class ImportJobDto {
+    private String id;
+    private String status; // QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED
+    private String mode;
+    private long rowsProcessed;
+    private long bytesRead;
+    private long totalBytes;
+    private double rowsPerSecond;
+    private Long etaSeconds; // null, пока скорость неизвестна или задача завершена
+    private String error;
+    private Date createdAt;
+    private Date startedAt;
+    private Date finishedAt;
+    private ImportResultDto result; // итог с отчетом об ошибках, когда задача завершена
+
+    public ImportJobDto() {}
+
+    public String getId() {
+        return id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public long getRowsProcessed() {
+        return rowsProcessed;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public Long getEtaSeconds() {
+        return etaSeconds;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public Date getStartedAt() {
+        return startedAt;
+    }
+
+    public Date getFinishedAt() {
+        return finishedAt;
+    }
+
+    public ImportResultDto getResult() {
+        return result;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public void setRowsProcessed(long rowsProcessed) {
+        this.rowsProcessed = rowsProcessed;
+    }
+
+    public void setBytesRead(long bytesRead) {
+        this.bytesRead = bytesRead;
+    }
+
+    public void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    public void setRowsPerSecond(double rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    public void setEtaSeconds(Long etaSeconds) {
+        this.etaSeconds = etaSeconds;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public void setStartedAt(Date startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public void setFinishedAt(Date finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public void setResult(ImportResultDto result) {
+        this.result = result;
+    }
+}
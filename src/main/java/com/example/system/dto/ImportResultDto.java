@@ -0,0 +1,268 @@
+package com.example.system.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImportResultDto {
+    // В отчет попадают только первые ошибки, остальные учитываются в failedRows
+    public static final int MAX_REPORTED_ERRORS = 100;
+
+    private String status; // SUCCESS, PARTIAL, ERROR или CANCELLED
+    private int importedRows;
+    private int failedRows;
+    private boolean stopped; // импорт остановлен до конца файла
+    private boolean dryRun; // только проверка: importedRows — сколько строк было бы записано
+    private Long historyId; // запись ImportHistory с этим итогом
+    private boolean duplicate; // повторная отправка: возвращен итог предыдущего импорта historyId
+    private String contentHash;
+    private String failureReason; // почему импорт остановлен или откатан; null при успехе
+    private Metrics metrics = new Metrics();
+    private List<RowError> errors = new ArrayList<>();
+
+    public ImportResultDto() {}
+
+    public void addError(long row, String message) {
+        addError(row, row, message);
+    }
+
+    // Ошибка записи пачки относится ко всему диапазону ее строк
+    public void addError(long fromRow, long toRow, String message) {
+        failedRows += (int) (toRow - fromRow + 1);
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new RowError(fromRow, toRow, message));
+        }
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public int getImportedRows() {
+        return importedRows;
+    }
+
+    public int getFailedRows() {
+        return failedRows;
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public Long getHistoryId() {
+        return historyId;
+    }
+
+    public boolean isDuplicate() {
+        return duplicate;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public void setImportedRows(int importedRows) {
+        this.importedRows = importedRows;
+    }
+
+    public void setFailedRows(int failedRows) {
+        this.failedRows = failedRows;
+    }
+
+    public void setStopped(boolean stopped) {
+        this.stopped = stopped;
+    }
+
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    public void setHistoryId(Long historyId) {
+        this.historyId = historyId;
+    }
+
+    public void setDuplicate(boolean duplicate) {
+        this.duplicate = duplicate;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public void setFailureReason(String failureReason) {
+        this.failureReason = failureReason;
+    }
+
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void setErrors(List<RowError> errors) {
+        this.errors = errors;
+    }
+
+    // Время и объем импорта. Фазы не пересекаются: parse — разбор тела, validate — проверки строк,
+    // write — построение плана и запись в базу
+    public static class Metrics {
+        private long durationMs;
+        private double rowsPerSecond;
+        private long bytesRead;
+        private long parseMs;
+        private long validateMs;
+        private long writeMs;
+        private int locationsInserted;
+        private int addressesInserted;
+        private int personsInserted;
+        private int organizationsInserted;
+        private int productsInserted;
+
+        public Metrics() {}
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+
+        public double getRowsPerSecond() {
+            return rowsPerSecond;
+        }
+
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        public long getParseMs() {
+            return parseMs;
+        }
+
+        public long getValidateMs() {
+            return validateMs;
+        }
+
+        public long getWriteMs() {
+            return writeMs;
+        }
+
+        public int getLocationsInserted() {
+            return locationsInserted;
+        }
+
+        public int getAddressesInserted() {
+            return addressesInserted;
+        }
+
+        public int getPersonsInserted() {
+            return personsInserted;
+        }
+
+        public int getOrganizationsInserted() {
+            return organizationsInserted;
+        }
+
+        public int getProductsInserted() {
+            return productsInserted;
+        }
+
+        public void setDurationMs(long durationMs) {
+            this.durationMs = durationMs;
+        }
+
+        public void setRowsPerSecond(double rowsPerSecond) {
+            this.rowsPerSecond = rowsPerSecond;
+        }
+
+        public void setBytesRead(long bytesRead) {
+            this.bytesRead = bytesRead;
+        }
+
+        public void setParseMs(long parseMs) {
+            this.parseMs = parseMs;
+        }
+
+        public void setValidateMs(long validateMs) {
+            this.validateMs = validateMs;
+        }
+
+        public void setWriteMs(long writeMs) {
+            this.writeMs = writeMs;
+        }
+
+        public void setLocationsInserted(int locationsInserted) {
+            this.locationsInserted = locationsInserted;
+        }
+
+        public void setAddressesInserted(int addressesInserted) {
+            this.addressesInserted = addressesInserted;
+        }
+
+        public void setPersonsInserted(int personsInserted) {
+            this.personsInserted = personsInserted;
+        }
+
+        public void setOrganizationsInserted(int organizationsInserted) {
+            this.organizationsInserted = organizationsInserted;
+        }
+
+        public void setProductsInserted(int productsInserted) {
+            this.productsInserted = productsInserted;
+        }
+    }
+
+    // Номера строк — позиции продуктов во входном массиве, начиная с 1
+    public static class RowError {
+        private long row;
+        private Long toRow; // только для ошибок целой пачки
+        private String message;
+
+        public RowError() {}
+
+        public RowError(long fromRow, long toRow, String message) {
+            this.row = fromRow;
+            this.toRow = toRow == fromRow ? null : toRow;
+            this.message = message;
+        }
+
+        public long getRow() {
+            return row;
+        }
+
+        public Long getToRow() {
+            return toRow;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setRow(long row) {
+            this.row = row;
+        }
+
+        public void setToRow(Long toRow) {
+            this.toRow = toRow;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+    }
+}
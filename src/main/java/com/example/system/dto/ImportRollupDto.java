@@ -0,0 +1,126 @@
+package com.example.system.dto;
+
+import java.util.Date;
+
+// Свертка истории импорта за час или день (или итог за период) по одному пользователю
+public class ImportRollupDto {
+    private Integer userId;
+    private String granularity; // HOUR или DAY
+    private Date bucketStart; // начало часа/дня; null в итоге за период
+    private long imports;
+    private long succeeded;
+    private double successRatio;
+    private long rowsImported;
+    private long rowsFailed;
+    private long bytesRead;
+    private long durationMsSum;
+    private double avgDurationMs;
+    private long p50DurationMs; // оценка по гистограмме сверток
+    private long p95DurationMs;
+
+    public ImportRollupDto() {}
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public String getGranularity() {
+        return granularity;
+    }
+
+    public Date getBucketStart() {
+        return bucketStart;
+    }
+
+    public long getImports() {
+        return imports;
+    }
+
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    public double getSuccessRatio() {
+        return successRatio;
+    }
+
+    public long getRowsImported() {
+        return rowsImported;
+    }
+
+    public long getRowsFailed() {
+        return rowsFailed;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getDurationMsSum() {
+        return durationMsSum;
+    }
+
+    public double getAvgDurationMs() {
+        return avgDurationMs;
+    }
+
+    public long getP50DurationMs() {
+        return p50DurationMs;
+    }
+
+    public long getP95DurationMs() {
+        return p95DurationMs;
+    }
+
+    public void setUserId(Integer userId) {
+        this.userId = userId;
+    }
+
+    public void setGranularity(String granularity) {
+        this.granularity = granularity;
+    }
+
+    public void setBucketStart(Date bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public void setImports(long imports) {
+        this.imports = imports;
+    }
+
+    public void setSucceeded(long succeeded) {
+        this.succeeded = succeeded;
+    }
+
+    public void setSuccessRatio(double successRatio) {
+        this.successRatio = successRatio;
+    }
+
+    public void setRowsImported(long rowsImported) {
+        this.rowsImported = rowsImported;
+    }
+
+    public void setRowsFailed(long rowsFailed) {
+        this.rowsFailed = rowsFailed;
+    }
+
+    public void setBytesRead(long bytesRead) {
+        this.bytesRead = bytesRead;
+    }
+
+    public void setDurationMsSum(long durationMsSum) {
+        this.durationMsSum = durationMsSum;
+    }
+
+    public void setAvgDurationMs(double avgDurationMs) {
+        this.avgDurationMs = avgDurationMs;
+    }
+
+    public void setP50DurationMs(long p50DurationMs) {
+        this.p50DurationMs = p50DurationMs;
+    }
+
+    public void setP95DurationMs(long p95DurationMs) {
+        this.p95DurationMs = p95DurationMs;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.system.dto;
+
+import com.example.system.entities.User;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+// Облегченное представление пользователя для аутентификации и админских списков: только колонки таблицы users,
+// без связанных продуктов. Заполняется конструктором прямо в JPQL-запросе
+public class UserSummaryDto {
+    private Integer id;
+    private String username;
+    @JsonIgnore
+    private String password; // хэш нужен только для проверки при входе, в ответы не попадает
+    private String role;
+    private boolean approved;
+
+    public UserSummaryDto() {}
+
+    public UserSummaryDto(Integer id, String username, String password, User.Role role, boolean approved) {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.role = role.toString();
+        this.approved = approved;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public boolean isApproved() {
+        return approved;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public void setRole(String role) {
+        this.role = role;
+    }
+
+    public void setApproved(boolean approved) {
+        this.approved = approved;
+    }
+}
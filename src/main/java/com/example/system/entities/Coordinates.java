@@ -1,6 +1,6 @@
 package com.example.system.entities;
 import jakarta.persistence.*;
-import javax.validation.constraints.*;
+import jakarta.validation.constraints.*;
 
 @Embeddable
 @Table(name = "coordinates")
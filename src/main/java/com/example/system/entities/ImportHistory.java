@@ -2,12 +2,22 @@ package com.example.system.entities;
 
 import java.util.Date;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 
+// В базе таблица секционирована по месяцам timestamp (см. SchemaMaintenance); первичный ключ там (id, timestamp)
 @Entity
+// Поиск предыдущего результата при повторной отправке импорта и страницы истории пользователя по времени
+@Table(indexes = {
+        @Index(name = "idx_importhistory_user_key", columnList = "userId, idempotencyKey"),
+        @Index(name = "idx_importhistory_user_hash", columnList = "userId, contentHash"),
+        @Index(name = "idx_importhistory_user_time", columnList = "userId, timestamp")
+})
 public class ImportHistory {
 
     @Id
@@ -15,8 +25,26 @@ public class ImportHistory {
     private Long id;
 
     private int userId;
-    private String status;  // SUCCESS или ERROR
+    private String status;  // SUCCESS, PARTIAL, ERROR или CANCELLED
     private int successCount;  // Количество успешно добавленных объектов
+    private int errorCount;  // Количество отклоненных строк
+    @Column(columnDefinition = "TEXT")
+    private String errorReport;  // Первые ошибки в виде JSON: [{"row":..,"message":..}]
+    private String idempotencyKey;  // Заголовок Idempotency-Key запроса, если был передан
+    private String contentHash;  // SHA-256 тела импорта (hex), если тело прочитано целиком
+    @Column(length = 1000)
+    private String failureReason;  // Причина остановки или отката; null при успехе
+    private long durationMs;  // От допуска импорта до итога
+    private double rowsPerSecond;
+    private long bytesRead;
+    private long parseMs;  // Время по фазам: разбор тела, проверки строк, запись в базу
+    private long validateMs;
+    private long writeMs;
+    private int locationsInserted;  // Сколько записей каждой сущности добавлено (без переиспользованных)
+    private int addressesInserted;
+    private int personsInserted;
+    private int organizationsInserted;
+    private int productsInserted;
     private Date timestamp;
 
     // Getters и Setters
@@ -52,6 +80,134 @@ public class ImportHistory {
         this.successCount = successCount;
     }
 
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    public void setErrorCount(int errorCount) {
+        this.errorCount = errorCount;
+    }
+
+    public String getErrorReport() {
+        return errorReport;
+    }
+
+    public void setErrorReport(String errorReport) {
+        this.errorReport = errorReport;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    public void setFailureReason(String failureReason) {
+        this.failureReason = failureReason;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(double rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public void setBytesRead(long bytesRead) {
+        this.bytesRead = bytesRead;
+    }
+
+    public long getParseMs() {
+        return parseMs;
+    }
+
+    public void setParseMs(long parseMs) {
+        this.parseMs = parseMs;
+    }
+
+    public long getValidateMs() {
+        return validateMs;
+    }
+
+    public void setValidateMs(long validateMs) {
+        this.validateMs = validateMs;
+    }
+
+    public long getWriteMs() {
+        return writeMs;
+    }
+
+    public void setWriteMs(long writeMs) {
+        this.writeMs = writeMs;
+    }
+
+    public int getLocationsInserted() {
+        return locationsInserted;
+    }
+
+    public void setLocationsInserted(int locationsInserted) {
+        this.locationsInserted = locationsInserted;
+    }
+
+    public int getAddressesInserted() {
+        return addressesInserted;
+    }
+
+    public void setAddressesInserted(int addressesInserted) {
+        this.addressesInserted = addressesInserted;
+    }
+
+    public int getPersonsInserted() {
+        return personsInserted;
+    }
+
+    public void setPersonsInserted(int personsInserted) {
+        this.personsInserted = personsInserted;
+    }
+
+    public int getOrganizationsInserted() {
+        return organizationsInserted;
+    }
+
+    public void setOrganizationsInserted(int organizationsInserted) {
+        this.organizationsInserted = organizationsInserted;
+    }
+
+    public int getProductsInserted() {
+        return productsInserted;
+    }
+
+    public void setProductsInserted(int productsInserted) {
+        this.productsInserted = productsInserted;
+    }
+
     public Date getTimestamp() {
         return timestamp;
     }
@@ -2,13 +2,13 @@ package com.example.system.entities;
 
 import jakarta.persistence.*;
 
-import javax.validation.constraints.*;
+import jakarta.validation.constraints.*;
 
 import lombok.ToString;
 
 @ToString
 @Entity
-@Table(name = "locations")
+@Table(name = "locations", indexes = @Index(name = "idx_locations_created_by_x", columnList = "created_by, x"))
 public class Location {
 
     @Id
@@ -40,10 +40,14 @@ public class Location {
         this.z = z;
     }
 
-    public int getId() {
+    public Integer getId() {
         return id;
     }
 
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
     public long getX() {
         return x;
     }
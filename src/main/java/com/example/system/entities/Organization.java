@@ -1,10 +1,10 @@
 package com.example.system.entities;
 
 import jakarta.persistence.*;
-import javax.validation.constraints.*;
+import jakarta.validation.constraints.*;
 
 @Entity
-@Table(name = "organizations")
+@Table(name = "organizations", indexes = @Index(name = "idx_organizations_created_by_name", columnList = "created_by, name"))
 public class Organization {
 
     @Id
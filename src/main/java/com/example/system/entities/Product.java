@@ -1,11 +1,19 @@
 package com.example.system.entities;
 
 import jakarta.persistence.*;
-import javax.validation.constraints.*;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.*;
 import java.time.ZonedDateTime;
 
 @Entity
-@Table(name = "products")
+// Индексы под keyset-пагинацию: (колонка сортировки, id) совпадает с условием и порядком выборки страницы
+// На уже существующей таблице их создает SchemaMaintenance
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_name_id", columnList = "name, id"),
+        @Index(name = "idx_products_price_id", columnList = "price, id"),
+        @Index(name = "idx_products_rating_id", columnList = "rating, id"),
+        @Index(name = "idx_products_created_by_id", columnList = "created_by, id")
+})
 public class Product {
 
     @Id
@@ -19,6 +27,7 @@ public class Product {
     private String name;
 
     @NotNull
+    @Valid
     @Embedded
     private Coordinates coordinates;
 
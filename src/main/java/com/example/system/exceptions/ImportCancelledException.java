@@ -0,0 +1,8 @@
+package com.example.system.exceptions;
+
+public class ImportCancelledException extends RuntimeException {
+
+    public ImportCancelledException() {
+        super("Импорт отменен");
+    }
+}
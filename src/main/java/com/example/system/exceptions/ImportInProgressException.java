@@ -0,0 +1,8 @@
+package com.example.system.exceptions;
+
+public class ImportInProgressException extends RuntimeException {
+
+    public ImportInProgressException(String message) {
+        super(message);
+    }
+}
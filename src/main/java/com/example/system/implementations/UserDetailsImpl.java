@@ -9,6 +9,7 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import com.example.system.dto.UserSummaryDto;
 import com.example.system.entities.User;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
@@ -48,6 +49,18 @@ public class UserDetailsImpl implements UserDetails {
         authorities);
   }
 
+  public static UserDetailsImpl build(UserSummaryDto user) {
+    List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority(user.getRole()));
+
+    return new UserDetailsImpl(
+        user.getId(),
+        user.getUsername(),
+        user.getPassword(),
+        user.getRole(),
+        user.isApproved(),
+        authorities);
+  }
+
   @Override
   public Collection<? extends GrantedAuthority> getAuthorities() {
     return authorities;
@@ -2,6 +2,7 @@ package com.example.system.repositories;
 
 import com.example.system.entities.*;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 
 import org.springframework.data.jpa.repository.Query;
@@ -10,7 +11,7 @@ import org.springframework.data.repository.query.Param;
 import java.util.List;
 
 @Repository
-public interface AddressRepository extends JpaRepository<Address, Integer> {
+public interface AddressRepository extends JpaRepository<Address, Integer>, JpaSpecificationExecutor<Address> {
 
     @Query("SELECT a FROM Address a WHERE a.town.id = :townId")
     List<Address> findAllByTownId(@Param("townId") Integer townId);
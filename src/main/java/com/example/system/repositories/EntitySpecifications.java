@@ -0,0 +1,46 @@
+package com.example.system.repositories;
+
+import org.springframework.data.jpa.domain.Specification;
+
+// Простые фильтры для постраничных выборок; null-значение фильтра означает "без ограничения"
+public final class EntitySpecifications {
+
+    private EntitySpecifications() {
+    }
+
+    public static <T> Specification<T> equalTo(String attribute, Object value) {
+        if (value == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get(attribute), value);
+    }
+
+    public static <T> Specification<T> startsWith(String attribute, String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            return null;
+        }
+        String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return (root, query, cb) -> cb.like(root.<String>get(attribute), pattern, '\\');
+    }
+
+    public static <T, Y extends Comparable<? super Y>> Specification<T> atLeast(String attribute, Y min) {
+        if (min == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.<Y>get(attribute), min);
+    }
+
+    public static <T, Y extends Comparable<? super Y>> Specification<T> atMost(String attribute, Y max) {
+        if (max == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.<Y>get(attribute), max);
+    }
+
+    public static <T, Y extends Comparable<? super Y>> Specification<T> before(String attribute, Y bound) {
+        if (bound == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.lessThan(root.<Y>get(attribute), bound);
+    }
+}
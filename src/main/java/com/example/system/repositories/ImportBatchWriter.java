@@ -0,0 +1,262 @@
+package com.example.system.repositories;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Repository;
+
+import com.example.system.entities.Address;
+import com.example.system.entities.Color;
+import com.example.system.entities.Country;
+import com.example.system.entities.Location;
+import com.example.system.entities.Organization;
+import com.example.system.entities.Person;
+import com.example.system.entities.Product;
+
+// Запись импорта мимо EntityManager: id берутся пачкой из sequence таблицы, строки уходят пакетными INSERT
+// (драйвер с reWriteBatchedInserts склеивает их в многострочные). Колонки повторяют маппинг сущностей
+@Repository
+public class ImportBatchWriter implements ImportRowWriter {
+
+    private static final int BATCH_SIZE = 1_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ImportBatchWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Один запрос на любое количество id; sequence та же, что у SERIAL-колонки, поэтому
+    // обычные save() через EclipseLink и импорт не пересекаются
+    public List<Integer> allocateIds(String table, int count) {
+        if (count == 0) {
+            return List.of();
+        }
+        return jdbcTemplate.queryForList(
+                "SELECT nextval(pg_get_serial_sequence(?, 'id'))::integer FROM generate_series(1, ?)",
+                Integer.class, table, count);
+    }
+
+    public Set<Integer> findExistingIds(String table, Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        // Имя таблицы приходит только из констант сервиса импорта
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT id FROM " + table + " WHERE id = ANY (?)", Integer.class,
+                (Object) ids.toArray(new Integer[0])));
+    }
+
+    // part_number уникален, поэтому поиск идет по индексу ограничения
+    public Set<String> findExistingPartNumbers(Collection<String> partNumbers) {
+        if (partNumbers.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT part_number FROM products WHERE part_number = ANY (?)", String.class,
+                (Object) partNumbers.toArray(new String[0])));
+    }
+
+    // Поиск уже сохраненных записей пользователя для дедупликации импорта: узкий фильтр по индексу
+    // (created_by, дискриминатор), точное сравнение всех полей делает сервис. Вложенные сущности — только с id.
+    // Дискриминатор — x для локаций, zip_code для адресов, name для людей и организаций; индексы объявлены
+    // в @Table сущностей и на существующих таблицах создаются SchemaMaintenance
+    public List<Location> findLocations(Integer userId, Collection<Long> xs) {
+        return jdbcTemplate.query("SELECT id, x, y, z FROM locations WHERE created_by = ? AND x = ANY (?)",
+                (rs, rowNum) -> {
+                    Location location = new Location();
+                    location.setId(rs.getInt("id"));
+                    location.setX(rs.getLong("x"));
+                    location.setY(rs.getObject("y", Integer.class));
+                    location.setZ(rs.getObject("z", Double.class));
+                    return location;
+                }, userId, xs.toArray(new Long[0]));
+    }
+
+    public List<Address> findAddresses(Integer userId, Collection<String> zipCodes) {
+        return jdbcTemplate.query("SELECT id, zip_code, town_id FROM addresses WHERE created_by = ? AND zip_code = ANY (?)",
+                (rs, rowNum) -> {
+                    Address address = new Address();
+                    address.setId(rs.getInt("id"));
+                    address.setZipCode(rs.getString("zip_code"));
+                    address.setTown(locationRef(rs.getObject("town_id", Integer.class)));
+                    return address;
+                }, userId, zipCodes.toArray(new String[0]));
+    }
+
+    public List<Person> findPersons(Integer userId, Collection<String> names) {
+        return jdbcTemplate.query("SELECT id, name, eye_color, hair_color, location_id, birthday, nationality "
+                + "FROM persons WHERE created_by = ? AND name = ANY (?)",
+                (rs, rowNum) -> {
+                    Person person = new Person();
+                    person.setId(rs.getInt("id"));
+                    person.setName(rs.getString("name"));
+                    String eyeColor = rs.getString("eye_color");
+                    person.setEyeColor(eyeColor == null ? null : Color.valueOf(eyeColor));
+                    person.setHairColor(Color.valueOf(rs.getString("hair_color")));
+                    person.setLocation(locationRef(rs.getObject("location_id", Integer.class)));
+                    person.setBirthday(rs.getTimestamp("birthday"));
+                    person.setNationality(Country.valueOf(rs.getString("nationality")));
+                    return person;
+                }, userId, names.toArray(new String[0]));
+    }
+
+    public List<Organization> findOrganizations(Integer userId, Collection<String> names) {
+        return jdbcTemplate.query("SELECT id, name, full_name, annual_turnover, employees_count, rating, "
+                + "official_address_id, postal_address_id FROM organizations WHERE created_by = ? AND name = ANY (?)",
+                (rs, rowNum) -> {
+                    Organization organization = new Organization();
+                    organization.setId(rs.getInt("id"));
+                    organization.setName(rs.getString("name"));
+                    organization.setFullName(rs.getString("full_name"));
+                    organization.setAnnualTurnover(rs.getObject("annual_turnover", Integer.class));
+                    organization.setEmployeesCount(rs.getLong("employees_count"));
+                    organization.setRating(rs.getObject("rating", Integer.class));
+                    organization.setOfficialAddress(addressRef(rs.getObject("official_address_id", Integer.class)));
+                    organization.setPostalAddress(addressRef(rs.getObject("postal_address_id", Integer.class)));
+                    return organization;
+                }, userId, names.toArray(new String[0]));
+    }
+
+    @Override
+    public void insertLocations(List<Location> locations) {
+        batch("INSERT INTO locations (id, created_by, x, y, z) VALUES (?, ?, ?, ?, ?)", locations,
+                (ps, location) -> {
+                    ps.setInt(1, location.getId());
+                    ps.setInt(2, location.getCreatedBy());
+                    ps.setLong(3, location.getX());
+                    setNullable(ps, 4, location.getY(), Types.INTEGER);
+                    setNullable(ps, 5, location.getZ(), Types.DOUBLE);
+                });
+    }
+
+    @Override
+    public void insertAddresses(List<Address> addresses) {
+        batch("INSERT INTO addresses (id, created_by, zip_code, town_id) VALUES (?, ?, ?, ?)", addresses,
+                (ps, address) -> {
+                    ps.setInt(1, address.getId());
+                    ps.setInt(2, address.getCreatedBy());
+                    setNullable(ps, 3, address.getZipCode(), Types.VARCHAR);
+                    setNullable(ps, 4, address.getTown() == null ? null : address.getTown().getId(), Types.INTEGER);
+                });
+    }
+
+    @Override
+    public void insertPersons(List<Person> persons) {
+        batch("INSERT INTO persons (id, birthday, created_by, eye_color, hair_color, name, nationality, location_id) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", persons,
+                (ps, person) -> {
+                    ps.setInt(1, person.getId());
+                    setNullable(ps, 2, person.getBirthday() == null ? null : new Timestamp(person.getBirthday().getTime()),
+                            Types.TIMESTAMP);
+                    ps.setInt(3, person.getCreatedBy());
+                    setNullable(ps, 4, person.getEyeColor() == null ? null : person.getEyeColor().name(), Types.VARCHAR);
+                    ps.setString(5, person.getHairColor().name());
+                    ps.setString(6, person.getName());
+                    ps.setString(7, person.getNationality().name());
+                    ps.setInt(8, person.getLocation().getId());
+                });
+    }
+
+    @Override
+    public void insertOrganizations(List<Organization> organizations) {
+        batch("INSERT INTO organizations (id, annual_turnover, created_by, employees_count, full_name, name, rating, "
+                + "official_address_id, postal_address_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", organizations,
+                (ps, organization) -> {
+                    ps.setInt(1, organization.getId());
+                    setNullable(ps, 2, organization.getAnnualTurnover(), Types.INTEGER);
+                    ps.setInt(3, organization.getCreatedBy());
+                    ps.setLong(4, organization.getEmployeesCount());
+                    setNullable(ps, 5, organization.getFullName(), Types.VARCHAR);
+                    ps.setString(6, organization.getName());
+                    setNullable(ps, 7, organization.getRating(), Types.INTEGER);
+                    setNullable(ps, 8, idOf(organization.getOfficialAddress()), Types.INTEGER);
+                    setNullable(ps, 9, idOf(organization.getPostalAddress()), Types.INTEGER);
+                });
+    }
+
+    @Override
+    public void insertProducts(List<Product> products) {
+        batch("INSERT INTO products (id, created_by, creation_date, manufacture_cost, name, part_number, price, rating, "
+                + "unit_of_measure, x, y, manufacturer_id, owner_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", products,
+                (ps, product) -> {
+                    ps.setInt(1, product.getId());
+                    ps.setInt(2, product.getCreatedBy());
+                    ps.setBytes(3, serialize(product.getCreationDate()));
+                    setNullable(ps, 4, product.getManufactureCost() == null ? null : product.getManufactureCost().doubleValue(),
+                            Types.DOUBLE);
+                    ps.setString(5, product.getName());
+                    setNullable(ps, 6, product.getPartNumber(), Types.VARCHAR);
+                    ps.setLong(7, product.getPrice());
+                    ps.setDouble(8, product.getRating());
+                    setNullable(ps, 9, product.getUnitOfMeasure() == null ? null : product.getUnitOfMeasure().name(),
+                            Types.VARCHAR);
+                    setNullable(ps, 10, product.getCoordinates() == null ? null : product.getCoordinates().getX(), Types.BIGINT);
+                    setNullable(ps, 11, product.getCoordinates() == null ? null : product.getCoordinates().getY(), Types.INTEGER);
+                    ps.setInt(12, product.getManufacturer().getId());
+                    ps.setInt(13, product.getOwner().getId());
+                });
+    }
+
+    private <T> void batch(String sql, List<T> rows, ParameterizedPreparedStatementSetter<T> setter) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, new ArrayList<>(rows), BATCH_SIZE, setter);
+        }
+    }
+
+    private static Location locationRef(Integer id) {
+        if (id == null) {
+            return null;
+        }
+        Location location = new Location();
+        location.setId(id);
+        return location;
+    }
+
+    private static Address addressRef(Integer id) {
+        if (id == null) {
+            return null;
+        }
+        Address address = new Address();
+        address.setId(id);
+        return address;
+    }
+
+    private static Integer idOf(Address address) {
+        return address == null ? null : address.getId();
+    }
+
+    private static void setNullable(PreparedStatement ps, int index, Object value, int sqlType) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, sqlType);
+        } else {
+            ps.setObject(index, value, sqlType);
+        }
+    }
+
+    // creation_date хранится EclipseLink как сериализованный ZonedDateTime (BYTEA), пишем так же
+    static byte[] serialize(Serializable value) throws SQLException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+        try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+            out.writeObject(value);
+        } catch (IOException e) {
+            throw new SQLException("Не удалось сериализовать дату создания", e);
+        }
+        return buffer.toByteArray();
+    }
+}
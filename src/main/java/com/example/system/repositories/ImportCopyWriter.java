@@ -0,0 +1,199 @@
+package com.example.system.repositories;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.example.system.entities.Address;
+import com.example.system.entities.Location;
+import com.example.system.entities.Organization;
+import com.example.system.entities.Person;
+import com.example.system.entities.Product;
+
+// Режим импорта через COPY: строки потоком заливаются во временную таблицу-копию целевой
+// (временные таблицы не пишут WAL и удаляются при коммите), затем переносятся одним INSERT ... SELECT.
+// Работает на соединении текущей транзакции, поэтому откат импорта отменяет и эти вставки
+@Repository
+public class ImportCopyWriter implements ImportRowWriter {
+
+    private static final int FLUSH_CHARS = 1 << 20;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ImportCopyWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertLocations(List<Location> locations) {
+        copy("locations", "id, created_by, x, y, z", locations, (row, location) -> {
+            row.value(location.getId()).value(location.getCreatedBy()).value(location.getX())
+                    .value(location.getY()).value(location.getZ());
+        });
+    }
+
+    @Override
+    public void insertAddresses(List<Address> addresses) {
+        copy("addresses", "id, created_by, zip_code, town_id", addresses, (row, address) -> {
+            row.value(address.getId()).value(address.getCreatedBy()).text(address.getZipCode())
+                    .value(address.getTown() == null ? null : address.getTown().getId());
+        });
+    }
+
+    @Override
+    public void insertPersons(List<Person> persons) {
+        copy("persons", "id, birthday, created_by, eye_color, hair_color, name, nationality, location_id", persons,
+                (row, person) -> {
+                    row.value(person.getId())
+                            .value(person.getBirthday() == null ? null : new Timestamp(person.getBirthday().getTime()))
+                            .value(person.getCreatedBy())
+                            .text(person.getEyeColor() == null ? null : person.getEyeColor().name())
+                            .text(person.getHairColor().name())
+                            .text(person.getName())
+                            .text(person.getNationality().name())
+                            .value(person.getLocation().getId());
+                });
+    }
+
+    @Override
+    public void insertOrganizations(List<Organization> organizations) {
+        copy("organizations", "id, annual_turnover, created_by, employees_count, full_name, name, rating, "
+                + "official_address_id, postal_address_id", organizations, (row, organization) -> {
+                    row.value(organization.getId())
+                            .value(organization.getAnnualTurnover())
+                            .value(organization.getCreatedBy())
+                            .value(organization.getEmployeesCount())
+                            .text(organization.getFullName())
+                            .text(organization.getName())
+                            .value(organization.getRating())
+                            .value(organization.getOfficialAddress() == null ? null : organization.getOfficialAddress().getId())
+                            .value(organization.getPostalAddress() == null ? null : organization.getPostalAddress().getId());
+                });
+    }
+
+    @Override
+    public void insertProducts(List<Product> products) {
+        copy("products", "id, created_by, creation_date, manufacture_cost, name, part_number, price, rating, "
+                + "unit_of_measure, x, y, manufacturer_id, owner_id", products, (row, product) -> {
+                    byte[] creationDate;
+                    try {
+                        creationDate = ImportBatchWriter.serialize(product.getCreationDate());
+                    } catch (SQLException e) {
+                        throw new IllegalStateException(e.getMessage(), e);
+                    }
+                    row.value(product.getId())
+                            .value(product.getCreatedBy())
+                            .bytes(creationDate)
+                            .value(product.getManufactureCost())
+                            .text(product.getName())
+                            .text(product.getPartNumber())
+                            .value(product.getPrice())
+                            .value(product.getRating())
+                            .text(product.getUnitOfMeasure() == null ? null : product.getUnitOfMeasure().name())
+                            .value(product.getCoordinates() == null ? null : product.getCoordinates().getX())
+                            .value(product.getCoordinates() == null ? null : product.getCoordinates().getY())
+                            .value(product.getManufacturer().getId())
+                            .value(product.getOwner().getId());
+                });
+    }
+
+    private <T> void copy(String table, String columns, List<T> rows, BiConsumer<CsvRow, T> writer) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        String staging = "import_stage_" + table;
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TEMP TABLE IF NOT EXISTS " + staging
+                        + " (LIKE " + table + " INCLUDING DEFAULTS) ON COMMIT DROP");
+            }
+
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            CopyIn copyIn = copyManager.copyIn("COPY " + staging + " (" + columns + ") FROM STDIN (FORMAT csv)");
+            try {
+                CsvRow row = new CsvRow();
+                for (T entity : rows) {
+                    writer.accept(row, entity);
+                    row.end();
+                    if (row.buffer.length() >= FLUSH_CHARS) {
+                        write(copyIn, row.buffer);
+                    }
+                }
+                write(copyIn, row.buffer);
+                copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+
+            // Перенос одним запросом: проверки ограничений (внешние ключи, уникальность) выполняет сама база
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("INSERT INTO " + table + " (" + columns + ") SELECT " + columns + " FROM " + staging);
+                statement.execute("TRUNCATE " + staging);
+            }
+            return null;
+        });
+    }
+
+    private static void write(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        if (buffer.length() > 0) {
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            buffer.setLength(0);
+        }
+    }
+
+    // Одна строка COPY в формате CSV: пустое поле без кавычек — NULL, строки всегда в кавычках
+    private static class CsvRow {
+        private final StringBuilder buffer = new StringBuilder(FLUSH_CHARS + 4096);
+        private boolean first = true;
+
+        CsvRow value(Object value) {
+            separator();
+            if (value != null) {
+                buffer.append(value);
+            }
+            return this;
+        }
+
+        CsvRow text(String value) {
+            separator();
+            if (value != null) {
+                buffer.append('"').append(value.replace("\"", "\"\"")).append('"');
+            }
+            return this;
+        }
+
+        CsvRow bytes(byte[] value) {
+            separator();
+            buffer.append("\\x").append(HexFormat.of().formatHex(value));
+            return this;
+        }
+
+        void end() {
+            buffer.append('\n');
+            first = true;
+        }
+
+        private void separator() {
+            if (!first) {
+                buffer.append(',');
+            }
+            first = false;
+        }
+    }
+}
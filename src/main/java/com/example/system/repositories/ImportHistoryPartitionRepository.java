@@ -0,0 +1,124 @@
+package com.example.system.repositories;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+// Таблица истории импорта секционирована по месяцам (PARTITION BY RANGE (timestamp)): секция importhistory_pYYYYMM
+// на каждый месяц и importhistory_default для всего, что не попало ни в одну секцию. Старые месяцы удаляются
+// целой секцией — без DELETE и последующего VACUUM. Методы рассчитаны на вызов внутри транзакции
+@Repository
+public class ImportHistoryPartitionRepository {
+
+    private static final String TABLE = "importhistory";
+    private static final String DEFAULT_PARTITION = TABLE + "_default";
+    private static final String PREFIX = TABLE + "_p";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ImportHistoryPartitionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // 'r' — обычная таблица (создана EclipseLink), 'p' — уже секционирована, null — таблицы нет
+    public String tableKind() {
+        List<String> kinds = jdbcTemplate.queryForList("SELECT c.relkind::text FROM pg_class c "
+                + "JOIN pg_namespace n ON n.oid = c.relnamespace WHERE n.nspname = current_schema() AND c.relname = ?",
+                String.class, TABLE);
+        return kinds.isEmpty() ? null : kinds.get(0);
+    }
+
+    // Переносит обычную таблицу в секционированную с теми же колонками. Первичный ключ секционированной таблицы
+    // обязан включать ключ секционирования, поэтому он (id, timestamp); id по-прежнему берется из той же sequence.
+    // Возвращает число перенесенных строк
+    public int convertToPartitioned(int monthsAhead) {
+        jdbcTemplate.execute("LOCK TABLE " + TABLE + " IN ACCESS EXCLUSIVE MODE");
+        String sequence = jdbcTemplate.queryForObject("SELECT pg_get_serial_sequence(?, 'id')", String.class, TABLE);
+        // Строки без времени уходят в секцию по умолчанию
+        jdbcTemplate.update("UPDATE " + TABLE + " SET timestamp = 'epoch' WHERE timestamp IS NULL");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + TABLE + "_legacy");
+        jdbcTemplate.execute("CREATE TABLE " + TABLE + " (LIKE " + TABLE + "_legacy INCLUDING DEFAULTS, "
+                + "PRIMARY KEY (id, \"timestamp\")) PARTITION BY RANGE (\"timestamp\")");
+        if (sequence != null) {
+            // Иначе sequence удалится вместе со старой таблицей
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " OWNED BY " + TABLE + ".id");
+        }
+        jdbcTemplate.execute("CREATE TABLE " + DEFAULT_PARTITION + " PARTITION OF " + TABLE + " DEFAULT");
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT min(timestamp) FROM " + TABLE + "_legacy "
+                + "WHERE timestamp > 'epoch'", Timestamp.class);
+        YearMonth current = YearMonth.now();
+        YearMonth month = oldest == null ? current : YearMonth.from(oldest.toLocalDateTime());
+        for (; !month.isAfter(current.plusMonths(monthsAhead)); month = month.plusMonths(1)) {
+            createPartition(month);
+        }
+        int moved = jdbcTemplate.update("INSERT INTO " + TABLE + " SELECT * FROM " + TABLE + "_legacy");
+        jdbcTemplate.execute("DROP TABLE " + TABLE + "_legacy");
+        return moved;
+    }
+
+    // Секция месяца, если ее еще нет. Строки этого месяца, успевшие попасть в секцию по умолчанию,
+    // переносятся в новую секцию: иначе PostgreSQL не даст ее создать
+    public boolean ensurePartition(YearMonth month) {
+        String name = partitionName(month);
+        Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, name);
+        if (Boolean.TRUE.equals(exists)) {
+            return false;
+        }
+        Timestamp from = start(month);
+        Timestamp to = start(month.plusMonths(1));
+        Boolean stray = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION
+                + " WHERE timestamp >= ? AND timestamp < ?)", Boolean.class, from, to);
+        if (!Boolean.TRUE.equals(stray)) {
+            createPartition(month);
+            return true;
+        }
+        jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE " + TABLE + " INCLUDING DEFAULTS)");
+        jdbcTemplate.update("INSERT INTO " + name + " SELECT * FROM " + DEFAULT_PARTITION
+                + " WHERE timestamp >= ? AND timestamp < ?", from, to);
+        jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE timestamp >= ? AND timestamp < ?", from, to);
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + name + " FOR VALUES FROM ('"
+                + from + "') TO ('" + to + "')");
+        return true;
+    }
+
+    // Месячные секции по возрастанию; секция по умолчанию не входит
+    public List<YearMonth> findPartitionMonths() {
+        List<String> names = jdbcTemplate.queryForList("SELECT c.relname::text FROM pg_inherits i "
+                + "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent "
+                + "JOIN pg_namespace n ON n.oid = p.relnamespace "
+                + "WHERE n.nspname = current_schema() AND p.relname = ? ORDER BY c.relname", String.class, TABLE);
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : names) {
+            if (name.startsWith(PREFIX) && name.length() == PREFIX.length() + 6) {
+                months.add(YearMonth.parse(name.substring(PREFIX.length()), SUFFIX));
+            }
+        }
+        return months;
+    }
+
+    public void dropPartition(YearMonth month) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partitionName(month));
+    }
+
+    private void createPartition(YearMonth month) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month) + " PARTITION OF " + TABLE
+                + " FOR VALUES FROM ('" + start(month) + "') TO ('" + start(month.plusMonths(1)) + "')");
+    }
+
+    private static String partitionName(YearMonth month) {
+        return PREFIX + month.format(SUFFIX);
+    }
+
+    // Колонка timestamp без часового пояса хранит локальное время JVM, границы месяцев — в нем же
+    private static Timestamp start(YearMonth month) {
+        return Timestamp.valueOf(month.atDay(1).atStartOfDay());
+    }
+}
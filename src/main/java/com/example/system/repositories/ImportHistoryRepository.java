@@ -1,14 +1,25 @@
 package com.example.system.repositories;
 
+import java.util.Date;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 
 import com.example.system.entities.ImportHistory;
 
 @Repository
-public interface ImportHistoryRepository extends JpaRepository<ImportHistory, Long> {
+// Таблица секционирована по месяцам timestamp: поиск повторов ограничен снизу по времени,
+// чтобы PostgreSQL читал только секции нужного периода; полные списки читают все секции
+public interface ImportHistoryRepository extends JpaRepository<ImportHistory, Long>, JpaSpecificationExecutor<ImportHistory> {
 
     public List<ImportHistory> findByUserId(int userId);
+
+    // Повторная отправка того же импорта: по ключу идемпотентности или по хэшу тела
+    public List<ImportHistory> findByUserIdAndIdempotencyKeyAndTimestampGreaterThanEqualOrderByIdDesc(int userId,
+            String idempotencyKey, Date since);
+
+    public List<ImportHistory> findByUserIdAndContentHashAndTimestampGreaterThanEqualOrderByIdDesc(int userId,
+            String contentHash, Date since);
 }
@@ -0,0 +1,63 @@
+package com.example.system.repositories;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.example.system.entities.ImportHistory;
+
+// Пакетная запись истории импорта: id берутся из sequence таблицы одним запросом, строки уходят одним
+// пакетным INSERT. Имена колонок — те, что EclipseLink выводит из полей ImportHistory
+@Repository
+public class ImportHistoryWriter {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ImportHistoryWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insert(List<ImportHistory> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT nextval(pg_get_serial_sequence('importhistory', 'id')) FROM generate_series(1, ?)",
+                Long.class, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            records.get(i).setId(ids.get(i));
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO importhistory (id, userid, status, successcount, errorcount, errorreport, "
+                + "idempotencykey, contenthash, failurereason, durationms, rowspersecond, bytesread, parsems, validatems, "
+                + "writems, locationsinserted, addressesinserted, personsinserted, organizationsinserted, productsinserted, "
+                + "timestamp) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", records,
+                records.size(), (ps, history) -> {
+                    ps.setLong(1, history.getId());
+                    ps.setInt(2, history.getUserId());
+                    ps.setString(3, history.getStatus());
+                    ps.setInt(4, history.getSuccessCount());
+                    ps.setInt(5, history.getErrorCount());
+                    ps.setObject(6, history.getErrorReport(), Types.VARCHAR);
+                    ps.setObject(7, history.getIdempotencyKey(), Types.VARCHAR);
+                    ps.setObject(8, history.getContentHash(), Types.VARCHAR);
+                    ps.setObject(9, history.getFailureReason(), Types.VARCHAR);
+                    ps.setLong(10, history.getDurationMs());
+                    ps.setDouble(11, history.getRowsPerSecond());
+                    ps.setLong(12, history.getBytesRead());
+                    ps.setLong(13, history.getParseMs());
+                    ps.setLong(14, history.getValidateMs());
+                    ps.setLong(15, history.getWriteMs());
+                    ps.setInt(16, history.getLocationsInserted());
+                    ps.setInt(17, history.getAddressesInserted());
+                    ps.setInt(18, history.getPersonsInserted());
+                    ps.setInt(19, history.getOrganizationsInserted());
+                    ps.setInt(20, history.getProductsInserted());
+                    ps.setTimestamp(21, new Timestamp(history.getTimestamp().getTime()));
+                });
+    }
+}
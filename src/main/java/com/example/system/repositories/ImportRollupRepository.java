@@ -0,0 +1,152 @@
+package com.example.system.repositories;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.example.system.dto.ImportRollupDto;
+import com.example.system.entities.ImportHistory;
+
+// Свертки истории импорта по пользователю и часу/дню. Обновляются инкрементально в той же транзакции,
+// что и запись истории (INSERT ... ON CONFLICT прибавляет к счетчикам), поэтому аналитика не читает сырую таблицу.
+// Для перцентилей длительности хранится гистограмма: корзина floor(4 * log2(ms + 1)), погрешность до ~19%
+@Repository
+public class ImportRollupRepository {
+
+    public static final String HOUR = "HOUR";
+    public static final String DAY = "DAY";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ImportRollupRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void createSchema() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS import_rollup ("
+                + "user_id integer NOT NULL, granularity varchar(8) NOT NULL, bucket_start timestamp NOT NULL, "
+                + "imports bigint NOT NULL, succeeded bigint NOT NULL, rows_imported bigint NOT NULL, "
+                + "rows_failed bigint NOT NULL, bytes_read bigint NOT NULL, duration_ms_sum bigint NOT NULL, "
+                + "PRIMARY KEY (user_id, granularity, bucket_start))");
+        // Выборка по диапазону времени без фильтра по пользователю
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_import_rollup_time ON import_rollup (granularity, bucket_start)");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS import_duration_rollup ("
+                + "user_id integer NOT NULL, granularity varchar(8) NOT NULL, bucket_start timestamp NOT NULL, "
+                + "duration_bucket smallint NOT NULL, imports bigint NOT NULL, "
+                + "PRIMARY KEY (user_id, granularity, bucket_start, duration_bucket))");
+    }
+
+    // Однократное заполнение сверток по уже накопленной истории — только если свертки пусты
+    public int backfillIfEmpty() {
+        Boolean empty = jdbcTemplate.queryForObject("SELECT NOT EXISTS (SELECT 1 FROM import_rollup)", Boolean.class);
+        if (!Boolean.TRUE.equals(empty)) {
+            return 0;
+        }
+        int rows = 0;
+        for (String granularity : List.of(HOUR, DAY)) {
+            String bucket = "date_trunc('" + granularity.toLowerCase() + "', timestamp)";
+            // Колонки, добавленные к таблице позже, в старых строках NULL: суммы по ним тоже могут быть NULL
+            rows += jdbcTemplate.update("INSERT INTO import_rollup SELECT userid, ?, " + bucket + ", count(*), "
+                    + "count(*) FILTER (WHERE status = 'SUCCESS'), coalesce(sum(successcount), 0), "
+                    + "coalesce(sum(errorcount), 0), coalesce(sum(bytesread), 0), coalesce(sum(durationms), 0) "
+                    + "FROM importhistory WHERE timestamp IS NOT NULL GROUP BY userid, " + bucket, granularity);
+            jdbcTemplate.update("INSERT INTO import_duration_rollup SELECT userid, ?, " + bucket + ", "
+                    + "floor(4 * log(2.0, coalesce(durationms, 0) + 1.0))::smallint AS duration_bucket, count(*) "
+                    + "FROM importhistory WHERE timestamp IS NOT NULL GROUP BY userid, " + bucket + ", duration_bucket",
+                    granularity);
+        }
+        return rows;
+    }
+
+    // Записи одной пачки сначала складываются в памяти, в базу уходит по одной строке на ключ свертки
+    public void record(List<ImportHistory> records) {
+        Map<List<Object>, long[]> totals = new LinkedHashMap<>();
+        Map<List<Object>, long[]> durations = new LinkedHashMap<>();
+        for (ImportHistory history : records) {
+            LocalDateTime time = LocalDateTime.ofInstant(history.getTimestamp().toInstant(), ZoneId.systemDefault());
+            for (String granularity : List.of(HOUR, DAY)) {
+                Timestamp bucketStart = Timestamp.valueOf(
+                        time.truncatedTo(HOUR.equals(granularity) ? ChronoUnit.HOURS : ChronoUnit.DAYS));
+                long[] sums = totals.computeIfAbsent(List.of(history.getUserId(), granularity, bucketStart),
+                        key -> new long[6]);
+                sums[0]++;
+                sums[1] += "SUCCESS".equals(history.getStatus()) ? 1 : 0;
+                sums[2] += history.getSuccessCount();
+                sums[3] += history.getErrorCount();
+                sums[4] += history.getBytesRead();
+                sums[5] += history.getDurationMs();
+                durations.computeIfAbsent(List.of(history.getUserId(), granularity, bucketStart,
+                        durationBucket(history.getDurationMs())), key -> new long[1])[0]++;
+            }
+        }
+        List<Object[]> totalRows = new ArrayList<>(totals.size());
+        totals.forEach((key, sums) -> totalRows.add(new Object[] {key.get(0), key.get(1), key.get(2),
+                sums[0], sums[1], sums[2], sums[3], sums[4], sums[5]}));
+        jdbcTemplate.batchUpdate("INSERT INTO import_rollup (user_id, granularity, bucket_start, imports, succeeded, "
+                + "rows_imported, rows_failed, bytes_read, duration_ms_sum) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) "
+                + "ON CONFLICT (user_id, granularity, bucket_start) DO UPDATE SET "
+                + "imports = import_rollup.imports + EXCLUDED.imports, "
+                + "succeeded = import_rollup.succeeded + EXCLUDED.succeeded, "
+                + "rows_imported = import_rollup.rows_imported + EXCLUDED.rows_imported, "
+                + "rows_failed = import_rollup.rows_failed + EXCLUDED.rows_failed, "
+                + "bytes_read = import_rollup.bytes_read + EXCLUDED.bytes_read, "
+                + "duration_ms_sum = import_rollup.duration_ms_sum + EXCLUDED.duration_ms_sum", totalRows);
+        List<Object[]> durationRows = new ArrayList<>(durations.size());
+        durations.forEach((key, count) -> durationRows.add(new Object[] {key.get(0), key.get(1), key.get(2),
+                key.get(3), count[0]}));
+        jdbcTemplate.batchUpdate("INSERT INTO import_duration_rollup (user_id, granularity, bucket_start, "
+                + "duration_bucket, imports) VALUES (?, ?, ?, ?, ?) "
+                + "ON CONFLICT (user_id, granularity, bucket_start, duration_bucket) DO UPDATE SET "
+                + "imports = import_duration_rollup.imports + EXCLUDED.imports", durationRows);
+    }
+
+    public List<ImportRollupDto> findRollups(String granularity, Integer userId, Timestamp from, Timestamp to) {
+        return jdbcTemplate.query("SELECT user_id, bucket_start, imports, succeeded, rows_imported, rows_failed, "
+                + "bytes_read, duration_ms_sum FROM import_rollup WHERE granularity = ? AND bucket_start >= ? "
+                + "AND bucket_start < ? AND (?::integer IS NULL OR user_id = ?) ORDER BY bucket_start, user_id",
+                (rs, rowNum) -> {
+                    ImportRollupDto rollup = new ImportRollupDto();
+                    rollup.setUserId(rs.getInt("user_id"));
+                    rollup.setGranularity(granularity);
+                    rollup.setBucketStart(rs.getTimestamp("bucket_start"));
+                    rollup.setImports(rs.getLong("imports"));
+                    rollup.setSucceeded(rs.getLong("succeeded"));
+                    rollup.setRowsImported(rs.getLong("rows_imported"));
+                    rollup.setRowsFailed(rs.getLong("rows_failed"));
+                    rollup.setBytesRead(rs.getLong("bytes_read"));
+                    rollup.setDurationMsSum(rs.getLong("duration_ms_sum"));
+                    return rollup;
+                }, granularity, from, to, userId, userId);
+    }
+
+    public List<DurationCount> findDurations(String granularity, Integer userId, Timestamp from, Timestamp to) {
+        return jdbcTemplate.query("SELECT user_id, bucket_start, duration_bucket, imports FROM import_duration_rollup "
+                + "WHERE granularity = ? AND bucket_start >= ? AND bucket_start < ? "
+                + "AND (?::integer IS NULL OR user_id = ?) ORDER BY duration_bucket",
+                (rs, rowNum) -> new DurationCount(rs.getInt("user_id"), rs.getTimestamp("bucket_start"),
+                        rs.getInt("duration_bucket"), rs.getLong("imports")),
+                granularity, from, to, userId, userId);
+    }
+
+    public static int durationBucket(long durationMs) {
+        return (int) Math.floor(4 * Math.log(Math.max(durationMs, 0) + 1.0) / Math.log(2));
+    }
+
+    // Верхняя граница корзины — оценка перцентиля с запасом
+    public static long bucketUpperMs(int bucket) {
+        return Math.round(Math.pow(2, (bucket + 1) / 4.0)) - 1;
+    }
+
+    public record DurationCount(int userId, Timestamp bucketStart, int bucket, long imports) {
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.system.repositories;
+
+import java.util.List;
+
+import com.example.system.entities.Address;
+import com.example.system.entities.Location;
+import com.example.system.entities.Organization;
+import com.example.system.entities.Person;
+import com.example.system.entities.Product;
+
+// Способ записи строк импорта. Id у всех сущностей уже выделены, вызовы идут в порядке внешних ключей
+public interface ImportRowWriter {
+
+    void insertLocations(List<Location> locations);
+
+    void insertAddresses(List<Address> addresses);
+
+    void insertPersons(List<Person> persons);
+
+    void insertOrganizations(List<Organization> organizations);
+
+    void insertProducts(List<Product> products);
+}
@@ -2,6 +2,7 @@ package com.example.system.repositories;
 
 import com.example.system.entities.Location;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -9,7 +10,7 @@ import org.springframework.data.repository.query.Param;
 import java.util.List;
 
 @Repository
-public interface LocationRepository extends JpaRepository<Location, Integer> {
+public interface LocationRepository extends JpaRepository<Location, Integer>, JpaSpecificationExecutor<Location> {
 
     @Query("SELECT COUNT(a) FROM Address a WHERE a.town.id = :locationId")
     long countAddressesLinkedToLocation(@Param("locationId") Integer locationId);
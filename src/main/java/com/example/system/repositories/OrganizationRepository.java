@@ -2,6 +2,7 @@ package com.example.system.repositories;
 
 import com.example.system.entities.*;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.jpa.repository.Query;
@@ -10,7 +11,7 @@ import org.springframework.data.repository.query.Param;
 import java.util.List;
 
 @Repository
-public interface OrganizationRepository extends JpaRepository<Organization, Integer> {
+public interface OrganizationRepository extends JpaRepository<Organization, Integer>, JpaSpecificationExecutor<Organization> {
 
     @Query("SELECT o FROM Organization o WHERE o.officialAddress.id = :addressId OR o.postalAddress.id = :addressId")
     List<Organization> findAllByOfficialAddressIdOrPostalAddressId(@Param("addressId") Integer addressId);
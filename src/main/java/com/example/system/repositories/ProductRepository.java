@@ -2,16 +2,18 @@ package com.example.system.repositories;
 
 import com.example.system.entities.*;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Integer> {
+public interface ProductRepository extends JpaRepository<Product, Integer>, JpaSpecificationExecutor<Product> {
     @Query("SELECT COUNT(p) FROM Product p WHERE p.owner.id = :ownerId")
     long countByOwnerId(@Param("ownerId") Integer ownerId);
 
@@ -21,6 +23,22 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
     @Query("SELECT COUNT(p) FROM Product p WHERE p.manufacturer.officialAddress.id = :addressId OR p.manufacturer.postalAddress.id = :addressId")
     long countByAddressId(@Param("addressId") Integer addressId);
 
+    // id продуктов, в JSON которых входят измененные вложенные сущности (для дельты /products/changes)
+    @Query("SELECT p.id FROM Product p WHERE p.manufacturer.id IN :ids")
+    List<Integer> findIdsByManufacturerIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query("SELECT p.id FROM Product p WHERE p.owner.id IN :ids")
+    List<Integer> findIdsByOwnerIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query("SELECT DISTINCT p.id FROM Product p JOIN p.manufacturer m LEFT JOIN m.officialAddress oa "
+            + "LEFT JOIN m.postalAddress pa WHERE oa.id IN :ids OR pa.id IN :ids")
+    List<Integer> findIdsByAddressIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query("SELECT DISTINCT p.id FROM Product p JOIN p.owner o JOIN p.manufacturer m LEFT JOIN m.officialAddress oa "
+            + "LEFT JOIN m.postalAddress pa LEFT JOIN oa.town ot LEFT JOIN pa.town pt "
+            + "WHERE o.location.id IN :ids OR ot.id IN :ids OR pt.id IN :ids")
+    List<Integer> findIdsByLocationIdIn(@Param("ids") Collection<Integer> ids);
+
 
     long countByPartNumber(String partNumber);
 
@@ -1,12 +1,35 @@
 package com.example.system.repositories;
 
+import com.example.system.dto.UserSummaryDto;
 import com.example.system.entities.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Integer> {
     Optional<User> findByUsername(String username);
-}
\ No newline at end of file
+
+    long countByIdAndRoleAndApproved(Integer id, User.Role role, boolean approved);
+
+    // Проекции без связи products: размер ответа не зависит от числа продуктов пользователя
+    @Query("SELECT new com.example.system.dto.UserSummaryDto(u.id, u.username, u.password, u.role, u.approved) "
+            + "FROM User u WHERE u.username = :username")
+    Optional<UserSummaryDto> findSummaryByUsername(@Param("username") String username);
+
+    @Query("SELECT new com.example.system.dto.UserSummaryDto(u.id, u.username, u.password, u.role, u.approved) "
+            + "FROM User u ORDER BY u.id")
+    List<UserSummaryDto> findAllSummaries();
+
+    @Query("SELECT new com.example.system.dto.UserSummaryDto(u.id, u.username, u.password, u.role, u.approved) "
+            + "FROM User u WHERE u.role = :role AND u.approved = :approved ORDER BY u.id")
+    List<UserSummaryDto> findSummariesByRoleAndApproved(@Param("role") User.Role role, @Param("approved") boolean approved);
+
+    // Продукты пользователя удаляются вместе с ним (CascadeType.ALL): их id нужны журналу изменений
+    @Query("SELECT p.id FROM User u JOIN u.products p WHERE u.id = :userId")
+    List<Integer> findProductIdsByUserId(@Param("userId") Integer userId);
+}
@@ -1,6 +1,8 @@
 package com.example.system.services;
 
-import com.example.system.entities.User;
+import com.example.system.dto.CursorPageDto;
+import com.example.system.dto.CursorPageRequest;
+import com.example.system.dto.ChangeSetDto;
 import com.example.system.entities.Address;
 import com.example.system.entities.Location;
 import com.example.system.entities.Organization;
@@ -8,45 +10,77 @@ import com.example.system.exceptions.ForbiddenOperationException;
 import com.example.system.exceptions.ResourceNotFoundException;
 import com.example.system.repositories.AddressRepository;
 import com.example.system.repositories.LocationRepository;
-import com.example.system.repositories.UserRepository;
 import com.example.system.repositories.OrganizationRepository;
+import com.example.system.repositories.EntitySpecifications;
+import com.example.system.services.ChangeLogService.EntityType;
+import com.example.system.utils.CoalescedRead;
+import com.example.system.utils.KeysetPager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 
 @Service
 @Transactional
 public class AddressService {
 
+    private static final Map<String, Class<?>> SORTABLE = Map.of(
+            "id", Integer.class,
+            "createdBy", Integer.class);
     private final AddressRepository addressRepository;
     private final LocationRepository locationRepository;
-    private final UserRepository userRepository;
+    private final AuthorizationService authorizationService;
     private final OrganizationRepository organizationRepository;
+    private final ChangeLogService changeLogService;
+    private final KeysetPager keysetPager;
 
     @Autowired
     public AddressService(AddressRepository addressRepository,
             LocationRepository locationRepository,
-            UserRepository userRepository,
-            OrganizationRepository organizationRepository
+            AuthorizationService authorizationService,
+            OrganizationRepository organizationRepository,
+            ChangeLogService changeLogService,
+            KeysetPager keysetPager
     ) {
         this.addressRepository = addressRepository;
         this.locationRepository = locationRepository;
-        this.userRepository = userRepository;
+        this.authorizationService = authorizationService;
         this.organizationRepository = organizationRepository;
+        this.changeLogService = changeLogService;
+        this.keysetPager = keysetPager;
     }
 
     public Address createAddress(Address address, Integer currentUserId) {
         processLocation(address, currentUserId);
         address.setCreatedBy(currentUserId); // Устанавливаем ID текущего пользователя
-        return addressRepository.save(address);
+        Address saved = addressRepository.save(address);
+        changeLogService.recordUpsert(EntityType.ADDRESS, saved::getId);
+        return saved;
     }
 
+    @CoalescedRead(EntityType.ADDRESS)
     public List<Address> getAllAddresses() {
         return addressRepository.findAll();
     }
 
+    @CoalescedRead(EntityType.ADDRESS)
+    public CursorPageDto<Address> getAddressesPage(CursorPageRequest page, Integer createdBy, String zipCodePrefix) {
+        Specification<Address> filter = Specification.allOf(
+                EntitySpecifications.equalTo("createdBy", createdBy),
+                EntitySpecifications.startsWith("zipCode", zipCodePrefix));
+        return keysetPager.page(addressRepository, filter, page, SORTABLE);
+    }
+
+    @CoalescedRead(EntityType.ADDRESS)
+    public ChangeSetDto<Address> getAddressChanges(long since) {
+        return changeLogService.collectChanges(EntityType.ADDRESS, since,
+                addressRepository::findAll, addressRepository::findAllById);
+    }
+
+    @CoalescedRead(EntityType.ADDRESS)
     public Address getAddressById(Integer id) {
         return addressRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Адрес с ID " + id + " не найден"));
@@ -55,12 +89,13 @@ public class AddressService {
     public Address updateAddress(Integer id, Address updatedAddress, Integer currentUserId) {
         return addressRepository.findById(id)
                 .map(existingAddress -> {
-                    if (!existingAddress.getCreatedBy().equals(currentUserId) && !isAdmin(currentUserId)) {
+                    if (!existingAddress.getCreatedBy().equals(currentUserId) && !authorizationService.isAdmin(currentUserId)) {
                         throw new ForbiddenOperationException("У вас нет прав для изменения этого адреса.");
                     }
                     existingAddress.setZipCode(updatedAddress.getZipCode());
                     processLocation(updatedAddress, currentUserId);
                     existingAddress.setTown(updatedAddress.getTown());
+                    changeLogService.recordUpsert(EntityType.ADDRESS, () -> id);
                     return addressRepository.save(existingAddress);
                 })
                 .orElseThrow(() -> new ResourceNotFoundException("Адрес с ID " + id + " не найден"));
@@ -73,12 +108,16 @@ public class AddressService {
                 .orElseThrow(() -> new ResourceNotFoundException("Адрес с ID " + id + " не найден"));
 
         // Проверка прав доступа: только создатель адреса или администратор может его удалить
-        if (!address.getCreatedBy().equals(currentUserId) && !isAdmin(currentUserId)) {
+        if (!address.getCreatedBy().equals(currentUserId) && !authorizationService.isAdmin(currentUserId)) {
             throw new ForbiddenOperationException("У вас нет прав для удаления этого адреса.");
         }
 
         // Удаляем адрес. При наличии каскадного удаления все связанные объекты также будут удалены
         addressRepository.deleteById(id);
+        changeLogService.recordDelete(EntityType.ADDRESS, id);
+        if (address.getTown() != null) {
+            changeLogService.recordDelete(EntityType.LOCATION, address.getTown().getId());
+        }
     }
 
     private void deleteAddressIfUnlinked(Address address, Integer currentUserId) {
@@ -95,6 +134,7 @@ public class AddressService {
             // Создание нового Location
             Location newLocation = locationRepository.save(address.getCreateTown());
             newLocation.setCreatedBy(currentUserId);
+            changeLogService.recordUpsert(EntityType.LOCATION, newLocation::getId);
             address.setTown(newLocation);
         } else if (address.getLinkTownId() != null) {
             // Привязка существующего Location
@@ -104,14 +144,4 @@ public class AddressService {
         }
     }
 
-    private boolean isAdmin(Integer userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("Пользователь с ID " + userId + " не найден"));
-
-        if (user.getRole() == User.Role.ADMIN && user.isApproved()) {
-            return true;
-        }
-
-        return false;
-    }
 }
@@ -0,0 +1,83 @@
+package com.example.system.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.system.entities.User;
+import com.example.system.implementations.UserDetailsImpl;
+import com.example.system.repositories.UserRepository;
+
+// Общая проверка прав для сервисов сущностей. Роль и подтверждение обычно уже есть в UserDetailsImpl
+// текущего запроса; для остальных пользователей ответ кэшируется и сбрасывается UserService при их изменении
+@Service
+public class AuthorizationService {
+
+    private final UserRepository userRepository;
+    private final Map<Integer, Boolean> adminByUserId = new ConcurrentHashMap<>();
+    // Растет при каждом сбросе: ответ, прочитанный до сброса, не попадет в кэш
+    private final AtomicLong version = new AtomicLong();
+
+    @Autowired
+    public AuthorizationService(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    public boolean isAdmin(Integer userId) {
+        UserDetailsImpl principal = currentPrincipal();
+        if (principal != null && principal.getId().equals(userId)) {
+            return isApprovedAdmin(principal.getRole(), principal.isApproved());
+        }
+
+        Boolean cached = adminByUserId.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+        long startVersion = version.get();
+        // Только счетчик по индексу, без загрузки пользователя и его продуктов
+        boolean admin = userRepository.countByIdAndRoleAndApproved(userId, User.Role.ADMIN, true) > 0;
+        synchronized (this) {
+            if (version.get() == startVersion) {
+                adminByUserId.put(userId, admin);
+            }
+        }
+        return admin;
+    }
+
+    // Сбрасываем сразу и после завершения транзакции, изменившей пользователя
+    public void invalidateUser(Integer userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(userId);
+                }
+            });
+        }
+        evict(userId);
+    }
+
+    private synchronized void evict(Integer userId) {
+        version.incrementAndGet();
+        adminByUserId.remove(userId);
+    }
+
+    private static UserDetailsImpl currentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserDetailsImpl principal) {
+            return principal;
+        }
+        return null;
+    }
+
+    private static boolean isApprovedAdmin(String role, boolean approved) {
+        return User.Role.ADMIN.name().equals(role) && approved;
+    }
+}
@@ -0,0 +1,1076 @@
+package com.example.system.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.Savepoint;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.system.dto.ImportResultDto;
+import com.example.system.entities.Address;
+import com.example.system.entities.Location;
+import com.example.system.entities.Organization;
+import com.example.system.entities.Person;
+import com.example.system.entities.Product;
+import com.example.system.exceptions.ImportCancelledException;
+import com.example.system.exceptions.ImportInProgressException;
+import com.example.system.exceptions.ResourceNotFoundException;
+import com.example.system.repositories.ImportBatchWriter;
+import com.example.system.repositories.ImportCopyWriter;
+import com.example.system.repositories.ImportRowWriter;
+import com.example.system.services.ChangeLogService.EntityType;
+import com.example.system.utils.ChunkReader;
+import com.example.system.utils.CsvChunkReader;
+import com.example.system.utils.HashingInputStream;
+import com.example.system.utils.JsonArrayChunkReader;
+import com.example.system.utils.NdjsonChunkReader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Массовый импорт продуктов вместе с владельцами и производителями. Сначала весь граф разбирается в памяти
+// (новые локации, адреса, люди, организации), затем id выделяются одним запросом на таблицу
+// и строки пишутся пакетами в порядке внешних ключей — вместо отдельного save на каждую сущность
+@Service
+@Transactional
+public class BulkImportService {
+
+    // BATCH — пакетные INSERT, COPY — заливка через COPY во временные таблицы для очень больших загрузок
+    public enum ImportMode {
+        BATCH, COPY;
+
+        public static ImportMode parse(String mode) {
+            try {
+                return valueOf(mode.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Неизвестный режим импорта: " + mode);
+            }
+        }
+    }
+
+    // Формат тела определяется по Content-Type: JSON-массив, NDJSON (объект на строку) или CSV с заголовком
+    public enum ImportFormat {
+        JSON, NDJSON, CSV;
+
+        public static ImportFormat fromContentType(String contentType) {
+            if (contentType == null) {
+                return JSON;
+            }
+            String type = contentType.toLowerCase();
+            if (type.startsWith("application/x-ndjson") || type.startsWith("application/ndjson")) {
+                return NDJSON;
+            }
+            if (type.startsWith("text/csv")) {
+                return CSV;
+            }
+            if (type.startsWith("application/json")) {
+                return JSON;
+            }
+            throw new IllegalArgumentException("Неподдерживаемый формат импорта: " + contentType);
+        }
+    }
+
+    // ALL_OR_NOTHING — любая ошибка откатывает весь импорт, SKIP_INVALID — ошибочные строки пропускаются,
+    // STOP_AT_FIRST_ERROR — сохраняется все до первой ошибочной строки
+    public enum ErrorPolicy {
+        ALL_OR_NOTHING, SKIP_INVALID, STOP_AT_FIRST_ERROR;
+
+        public static ErrorPolicy parse(String policy) {
+            try {
+                return valueOf(policy.toUpperCase().replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Неизвестная политика ошибок импорта: " + policy);
+            }
+        }
+    }
+
+    // IMPORT — одна транзакция на весь импорт (при пропуске ошибок каждая пачка под своей точкой сохранения),
+    // CHUNK — каждая пачка коммитится отдельно, и долгий импорт не держит блокировки до конца
+    public enum TransactionScope {
+        IMPORT, CHUNK;
+
+        public static TransactionScope parse(String scope) {
+            try {
+                return valueOf(scope.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Неизвестный режим транзакций импорта: " + scope);
+            }
+        }
+    }
+
+    // Параметры одного импорта
+    public static class ImportOptions {
+        private ImportMode mode = ImportMode.BATCH;
+        // Кроме дедупликации внутри пачки, искать совпадения среди уже сохраненных записей пользователя
+        private boolean reuseExisting;
+        private ErrorPolicy errorPolicy = ErrorPolicy.ALL_OR_NOTHING;
+        private TransactionScope transactionScope = TransactionScope.IMPORT;
+        private int chunkSize = DEFAULT_CHUNK_SIZE;
+        // Только проверка: план строится, но ничего не пишется и транзакции не открываются
+        private boolean dryRun;
+        // Импорт останавливается, когда отклонено столько строк; 0 — без ограничения
+        private int maxErrors;
+        private ImportFormat format = ImportFormat.JSON;
+        // Только для CSV: колонка выгрузки -> путь к полю продукта ("owner.name")
+        private Map<String, String> columnMapping = Map.of();
+        private char csvDelimiter = ',';
+        // Заголовок Idempotency-Key: повтор с тем же ключом возвращает итог первого импорта
+        private String idempotencyKey;
+
+        // Из параметров запроса; значения не чувствительны к регистру
+        public static ImportOptions of(String mode, boolean reuseExisting, String errorPolicy,
+                String transactionScope, int chunkSize, boolean dryRun, int maxErrors) {
+            ImportOptions options = new ImportOptions();
+            options.setMode(ImportMode.parse(mode));
+            options.setReuseExisting(reuseExisting);
+            options.setErrorPolicy(ErrorPolicy.parse(errorPolicy));
+            options.setTransactionScope(TransactionScope.parse(transactionScope));
+            options.setChunkSize(chunkSize);
+            options.setDryRun(dryRun);
+            options.setMaxErrors(maxErrors);
+            return options;
+        }
+
+        public ImportMode getMode() {
+            return mode;
+        }
+
+        public void setMode(ImportMode mode) {
+            this.mode = mode;
+        }
+
+        public boolean isReuseExisting() {
+            return reuseExisting;
+        }
+
+        public void setReuseExisting(boolean reuseExisting) {
+            this.reuseExisting = reuseExisting;
+        }
+
+        public ErrorPolicy getErrorPolicy() {
+            return errorPolicy;
+        }
+
+        public void setErrorPolicy(ErrorPolicy errorPolicy) {
+            this.errorPolicy = errorPolicy;
+        }
+
+        public TransactionScope getTransactionScope() {
+            return transactionScope;
+        }
+
+        public void setTransactionScope(TransactionScope transactionScope) {
+            this.transactionScope = transactionScope;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            if (chunkSize < 1 || chunkSize > MAX_CHUNK_SIZE) {
+                throw new IllegalArgumentException("Размер пачки импорта должен быть от 1 до " + MAX_CHUNK_SIZE);
+            }
+            this.chunkSize = chunkSize;
+        }
+
+        // "ERP_NAME:name,ERP_OWNER:owner.name" -> {ERP_NAME=name, ERP_OWNER=owner.name}
+        public static Map<String, String> parseColumnMapping(String mapping) {
+            Map<String, String> result = new HashMap<>();
+            if (mapping == null || mapping.isBlank()) {
+                return result;
+            }
+            for (String pair : mapping.split(",")) {
+                int separator = pair.indexOf(':');
+                if (separator <= 0 || separator == pair.length() - 1) {
+                    throw new IllegalArgumentException("Некорректное сопоставление колонок: " + pair);
+                }
+                result.put(pair.substring(0, separator).trim(), pair.substring(separator + 1).trim());
+            }
+            return result;
+        }
+
+        public ImportFormat getFormat() {
+            return format;
+        }
+
+        public void setFormat(ImportFormat format) {
+            this.format = format;
+        }
+
+        public Map<String, String> getColumnMapping() {
+            return columnMapping;
+        }
+
+        public void setColumnMapping(Map<String, String> columnMapping) {
+            this.columnMapping = columnMapping;
+        }
+
+        public char getCsvDelimiter() {
+            return csvDelimiter;
+        }
+
+        public void setCsvDelimiter(char csvDelimiter) {
+            this.csvDelimiter = csvDelimiter;
+        }
+
+        public boolean isDryRun() {
+            return dryRun;
+        }
+
+        public void setDryRun(boolean dryRun) {
+            this.dryRun = dryRun;
+        }
+
+        public int getMaxErrors() {
+            return maxErrors;
+        }
+
+        public void setMaxErrors(int maxErrors) {
+            if (maxErrors < 0) {
+                throw new IllegalArgumentException("Лимит ошибок импорта не может быть отрицательным");
+            }
+            this.maxErrors = maxErrors;
+        }
+
+        public String getIdempotencyKey() {
+            return idempotencyKey;
+        }
+
+        public void setIdempotencyKey(String idempotencyKey) {
+            if (idempotencyKey != null && idempotencyKey.isBlank()) {
+                idempotencyKey = null;
+            }
+            if (idempotencyKey != null && idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+                throw new IllegalArgumentException("Ключ идемпотентности длиннее " + MAX_IDEMPOTENCY_KEY_LENGTH + " символов");
+            }
+            this.idempotencyKey = idempotencyKey;
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkImportService.class);
+    // Сколько продуктов разбирается и пишется за раз; от него, а не от размера файла, зависит расход памяти
+    private static final int DEFAULT_CHUNK_SIZE = 1_000;
+    private static final int MAX_CHUNK_SIZE = 10_000;
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
+    private final ImportBatchWriter importBatchWriter;
+    private final ImportCopyWriter importCopyWriter;
+    private final ImportValidator importValidator;
+    private final ImportHistoryService importHistoryService;
+    private final ChangeLogService changeLogService;
+    private final ObjectMapper objectMapper;
+    // Весь импорт одной транзакцией — с той же изоляцией, что была у контроллера
+    private final TransactionTemplate importTransaction;
+    // Отдельная транзакция на пачку
+    private final TransactionTemplate chunkTransaction;
+    // Точки сохранения внутри транзакции импорта ставятся на ее соединении напрямую через JDBC:
+    // JpaTransactionManager с EclipseLink не поддерживает NESTED
+    private final JdbcTemplate jdbcTemplate;
+    // Ключи идемпотентности и хэши тел выполняющихся импортов ("userId:key:ключ", "userId:hash:хэш"):
+    // параллельный повтор получает 409, а не второй импорт
+    private final Set<String> keysInProgress = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public BulkImportService(ImportBatchWriter importBatchWriter,
+            ImportCopyWriter importCopyWriter,
+            ImportValidator importValidator,
+            ImportHistoryService importHistoryService,
+            ChangeLogService changeLogService,
+            ObjectMapper objectMapper,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager) {
+        this.importBatchWriter = importBatchWriter;
+        this.importCopyWriter = importCopyWriter;
+        this.importValidator = importValidator;
+        this.importHistoryService = importHistoryService;
+        this.changeLogService = changeLogService;
+        this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.importTransaction = new TransactionTemplate(transactionManager);
+        this.importTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Тело запроса сначала сохраняется во временный файл с подсчетом хэша: повтор того же тела распознается
+    // до начала импорта при любом режиме транзакций, как и у фоновых задач (ImportJobService)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ImportResultDto runImport(InputStream body, Integer currentUserId, ImportOptions options,
+            IntConsumer afterChunk) throws IOException {
+        checkOptions(options);
+        if (options.isDryRun()) {
+            return dryRun(new ImportRun(body, null, currentUserId, options, afterChunk));
+        }
+        Path file = Files.createTempFile("import-", "." + options.getFormat().name().toLowerCase());
+        try {
+            HashingInputStream hashing = new HashingInputStream(body);
+            Files.copy(hashing, file, StandardCopyOption.REPLACE_EXISTING);
+            String contentHash = hashing.finish();
+            try (InputStream in = Files.newInputStream(file)) {
+                return runImport(in, currentUserId, options, contentHash, afterChunk);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // Тело уже сохранено вызывающим, и его хэш известен. Продукты читаются потоком и пишутся пачками;
+    // транзакциями управляет сам метод согласно options, итог (с отчетом об ошибочных строках) записывается
+    // в историю импорта. afterChunk вызывается после каждой пачки с числом разобранных строк;
+    // исключение из него прерывает импорт
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ImportResultDto runImport(InputStream body, Integer currentUserId, ImportOptions options,
+            String contentHash, IntConsumer afterChunk) {
+        checkOptions(options);
+        if (options.isDryRun()) {
+            return dryRun(new ImportRun(body, contentHash, currentUserId, options, afterChunk));
+        }
+        // Сначала по ключу, затем по телу — ничего не читая и не открывая транзакций
+        String key = options.getIdempotencyKey();
+        ImportResultDto prior = key == null ? null : importHistoryService.findPriorResult(currentUserId, key, null);
+        if (prior == null) {
+            prior = importHistoryService.findPriorResult(currentUserId, null, contentHash);
+        }
+        if (prior != null) {
+            logger.info("Import for user {} repeats import {}, skipped", currentUserId, prior.getHistoryId());
+            return prior;
+        }
+        List<String> claims = new ArrayList<>();
+        try {
+            if (key != null) {
+                claim(claims, currentUserId + ":key:" + key, "Импорт с ключом " + key + " уже выполняется");
+            }
+            claim(claims, currentUserId + ":hash:" + contentHash, "Импорт такого же тела уже выполняется");
+            return importOnce(new ImportRun(body, contentHash, currentUserId, options, afterChunk));
+        } finally {
+            keysInProgress.removeAll(claims);
+        }
+    }
+
+    private static void checkOptions(ImportOptions options) {
+        if (options.getErrorPolicy() == ErrorPolicy.ALL_OR_NOTHING
+                && options.getTransactionScope() == TransactionScope.CHUNK) {
+            throw new IllegalArgumentException("Политика all-or-nothing несовместима с коммитом по пачкам");
+        }
+    }
+
+    private void claim(List<String> claims, String claim, String message) {
+        if (!keysInProgress.add(claim)) {
+            throw new ImportInProgressException(message);
+        }
+        claims.add(claim);
+    }
+
+    private ImportResultDto dryRun(ImportRun run) {
+        // Без транзакций и без записи в историю: только чтения для проверки ссылок и partNumber
+        try {
+            run.readAll();
+        } catch (ImportAbortedException e) {
+            run.result.setStopped(true);
+        } catch (RuntimeException e) {
+            run.result.addError(run.nextRow, describe(unwrap(e)));
+            run.result.setStopped(true);
+        }
+        run.result.setStatus(statusOf(run.result));
+        run.complete();
+        return run.result;
+    }
+
+    private ImportResultDto importOnce(ImportRun run) {
+        Integer currentUserId = run.currentUserId;
+        ImportOptions options = run.options;
+        boolean singleTransaction = options.getTransactionScope() == TransactionScope.IMPORT;
+        try {
+            if (singleTransaction) {
+                importTransaction.executeWithoutResult(status -> run.readAll());
+            } else {
+                run.readAll();
+            }
+            run.result.setStatus(statusOf(run.result));
+            // Итог записывается после коммита и через очередь: история не удлиняет транзакцию импорта
+            recordHistory(run);
+        } catch (ImportAbortedException e) {
+            finishFailed(run, "ERROR", true, null);
+        } catch (ImportCancelledException e) {
+            finishFailed(run, "CANCELLED", singleTransaction, "Импорт отменен");
+        } catch (RuntimeException e) {
+            // Оборванный или некорректный JSON: все, что было закоммичено по пачкам, остается
+            String reason = describe(unwrap(e));
+            run.result.addError(run.nextRow, reason);
+            finishFailed(run, "ERROR", singleTransaction, reason);
+        }
+        logger.info("Import for user {} finished: {} ({} imported, {} failed)", currentUserId,
+                run.result.getStatus(), run.result.getImportedRows(), run.result.getFailedRows());
+        return run.result;
+    }
+
+    // rolledBack — импорт шел одной транзакцией, и она откатилась целиком
+    private void finishFailed(ImportRun run, String status, boolean rolledBack, String reason) {
+        if (rolledBack) {
+            run.result.setImportedRows(0);
+            run.discardWrites();
+        }
+        run.result.setStopped(true);
+        run.result.setFailureReason(reason);
+        // Ошибка после уже закоммиченных пачек — импорт частичный
+        run.result.setStatus("ERROR".equals(status) && run.result.getImportedRows() > 0 ? "PARTIAL" : status);
+        recordHistory(run);
+    }
+
+    private void recordHistory(ImportRun run) {
+        ImportResultDto result = run.result;
+        if (result.getFailureReason() == null && !"SUCCESS".equals(result.getStatus()) && !result.getErrors().isEmpty()) {
+            ImportResultDto.RowError first = result.getErrors().get(0);
+            result.setFailureReason("Строка " + first.getRow() + ": " + first.getMessage());
+        }
+        run.complete();
+        importHistoryService.recordImportResult(run.currentUserId, result, run.options.getIdempotencyKey());
+    }
+
+    private static String statusOf(ImportResultDto result) {
+        if (result.getFailedRows() == 0 && !result.isStopped()) {
+            return "SUCCESS";
+        }
+        return result.getImportedRows() == 0 ? "ERROR" : "PARTIAL";
+    }
+
+    private static Throwable unwrap(RuntimeException e) {
+        return e instanceof UncheckedIOException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    private static String describe(Throwable e) {
+        if (e instanceof DataAccessException dataAccessException) {
+            return dataAccessException.getMostSpecificCause().getMessage();
+        }
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    // Одна пачка: сначала проверка (до открытия транзакции пачки), затем запись. При all-or-nothing ошибка
+    // пробрасывается и откатывает весь импорт, иначе откатывается только пачка (своя транзакция или точка сохранения)
+    private int writeChunk(List<Product> chunk, long firstRow, ImportRun run) {
+        ImportOptions options = run.options;
+        ImportResultDto result = run.result;
+        ErrorPolicy policy = options.getErrorPolicy();
+        long validateStart = System.nanoTime();
+        Map<Long, ImportResultDto.RowError> invalid = importValidator.validate(chunk, firstRow, run.partNumbers);
+        run.validateNanos += System.nanoTime() - validateStart;
+        if (policy == ErrorPolicy.ALL_OR_NOTHING && !invalid.isEmpty()) {
+            // Быстрый отказ: в базу эта пачка уже не пойдет
+            for (ImportResultDto.RowError error : invalid.values()) {
+                result.addError(error.getRow(), error.getMessage());
+            }
+            throw new ImportAbortedException();
+        }
+        ChunkOutcome outcome;
+        long writeStart = System.nanoTime();
+        try {
+            if (policy == ErrorPolicy.ALL_OR_NOTHING || options.isDryRun()) {
+                outcome = importProducts(chunk, firstRow, invalid, run.currentUserId, options);
+            } else if (options.getTransactionScope() == TransactionScope.CHUNK) {
+                outcome = chunkTransaction.execute(status -> importProducts(chunk, firstRow, invalid, run.currentUserId, options));
+            } else {
+                outcome = withSavepoint(() -> importProducts(chunk, firstRow, invalid, run.currentUserId, options));
+            }
+        } catch (RuntimeException e) {
+            // Строки прошли проверки, но запись отклонила база: номер строки неизвестен, отчет — на всю пачку
+            result.addError(firstRow, firstRow + chunk.size() - 1, describe(e));
+            if (policy == ErrorPolicy.ALL_OR_NOTHING) {
+                throw new ImportAbortedException();
+            }
+            result.setStopped(policy == ErrorPolicy.STOP_AT_FIRST_ERROR);
+            return 0;
+        } finally {
+            run.writeNanos += System.nanoTime() - writeStart;
+        }
+        run.countInserted(outcome);
+        for (ImportResultDto.RowError error : outcome.errors) {
+            result.addError(error.getRow(), error.getMessage());
+        }
+        if (!outcome.errors.isEmpty()) {
+            if (policy == ErrorPolicy.ALL_OR_NOTHING) {
+                throw new ImportAbortedException();
+            }
+            result.setStopped(policy == ErrorPolicy.STOP_AT_FIRST_ERROR);
+        }
+        return outcome.written;
+    }
+
+    // Ошибка внутри action откатывает только сделанное после точки сохранения, транзакция импорта продолжается
+    private <T> T withSavepoint(Supplier<T> action) {
+        Savepoint savepoint = jdbcTemplate.execute((ConnectionCallback<Savepoint>) Connection::setSavepoint);
+        T value;
+        try {
+            value = action.get();
+        } catch (RuntimeException e) {
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                connection.rollback(savepoint);
+                return null;
+            });
+            throw e;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            connection.releaseSavepoint(savepoint);
+            return null;
+        });
+        return value;
+    }
+
+    // Пачка продуктов: строки с ошибками (отклоненные проверкой в invalid или планом) отбрасываются целиком
+    // вместе со своими вложенными сущностями и попадают в отчет, остальные пишутся.
+    // При all-or-nothing после первой ошибки ничего не пишется, при dryRun не пишется ничего
+    ChunkOutcome importProducts(List<Product> products, long firstRow, Map<Long, ImportResultDto.RowError> invalid,
+            Integer currentUserId, ImportOptions options) {
+        ImportMode mode = options.getMode();
+        ErrorPolicy policy = options.getErrorPolicy();
+        ChunkOutcome outcome = new ChunkOutcome();
+        ImportPlan plan = new ImportPlan(currentUserId);
+        plan.loadReferences(products);
+        for (int i = 0; i < products.size(); i++) {
+            ImportResultDto.RowError rejected = invalid.get(firstRow + i);
+            if (rejected != null) {
+                outcome.errors.add(rejected);
+                if (policy != ErrorPolicy.SKIP_INVALID) {
+                    break;
+                }
+                continue;
+            }
+            try {
+                plan.addProduct(products.get(i));
+            } catch (RuntimeException e) {
+                outcome.errors.add(new ImportResultDto.RowError(firstRow + i, firstRow + i, describe(e)));
+                if (policy != ErrorPolicy.SKIP_INVALID) {
+                    break;
+                }
+            }
+        }
+        if (policy == ErrorPolicy.ALL_OR_NOTHING && !outcome.errors.isEmpty()) {
+            return outcome;
+        }
+        if (options.isReuseExisting()) {
+            plan.reuseExisting();
+        }
+        if (options.isDryRun()) {
+            outcome.written = plan.products.size();
+            return outcome;
+        }
+
+        List<Integer> locationIds = importBatchWriter.allocateIds("locations", plan.locations.size());
+        for (int i = 0; i < locationIds.size(); i++) {
+            plan.locations.get(i).setId(locationIds.get(i));
+        }
+        List<Integer> addressIds = importBatchWriter.allocateIds("addresses", plan.addresses.size());
+        for (int i = 0; i < addressIds.size(); i++) {
+            plan.addresses.get(i).setId(addressIds.get(i));
+        }
+        List<Integer> personIds = importBatchWriter.allocateIds("persons", plan.persons.size());
+        for (int i = 0; i < personIds.size(); i++) {
+            plan.persons.get(i).setId(personIds.get(i));
+        }
+        List<Integer> organizationIds = importBatchWriter.allocateIds("organizations", plan.organizations.size());
+        for (int i = 0; i < organizationIds.size(); i++) {
+            plan.organizations.get(i).setId(organizationIds.get(i));
+        }
+        List<Integer> productIds = importBatchWriter.allocateIds("products", plan.products.size());
+        for (int i = 0; i < productIds.size(); i++) {
+            plan.products.get(i).setId(productIds.get(i));
+        }
+
+        ImportRowWriter writer = mode == ImportMode.COPY ? importCopyWriter : importBatchWriter;
+        writer.insertLocations(plan.locations);
+        writer.insertAddresses(plan.addresses);
+        writer.insertPersons(plan.persons);
+        writer.insertOrganizations(plan.organizations);
+        writer.insertProducts(plan.products);
+        logger.info("Imported ({}) {} products: {} persons, {} organizations, {} addresses, {} locations ({} duplicates merged)",
+                mode, plan.products.size(), plan.persons.size(), plan.organizations.size(),
+                plan.addresses.size(), plan.locations.size(), plan.merged);
+
+        recordUpserts(EntityType.LOCATION, locationIds);
+        recordUpserts(EntityType.ADDRESS, addressIds);
+        recordUpserts(EntityType.PERSON, personIds);
+        recordUpserts(EntityType.ORGANIZATION, organizationIds);
+        recordUpserts(EntityType.PRODUCT, productIds);
+        outcome.written = plan.products.size();
+        outcome.locations = plan.locations.size();
+        outcome.addresses = plan.addresses.size();
+        outcome.persons = plan.persons.size();
+        outcome.organizations = plan.organizations.size();
+        return outcome;
+    }
+
+    private ChunkReader<Product> readerFor(ImportOptions options) {
+        return switch (options.getFormat()) {
+            case JSON -> new JsonArrayChunkReader<>(objectMapper, Product.class, options.getChunkSize());
+            case NDJSON -> new NdjsonChunkReader<>(objectMapper, Product.class, options.getChunkSize());
+            case CSV -> new CsvChunkReader<>(objectMapper, Product.class, options.getChunkSize(),
+                    options.getColumnMapping(), options.getCsvDelimiter());
+        };
+    }
+
+    // Состояние одного вызова runImport
+    private class ImportRun {
+        private final HashingInputStream body;
+        private final Integer currentUserId;
+        private final ImportOptions options;
+        private final IntConsumer afterChunk;
+        private final ImportResultDto result = new ImportResultDto();
+        // partNumber всех принятых строк — для поиска повторов между пачками
+        private final Set<String> partNumbers = new HashSet<>();
+        private long nextRow = 1;
+        private final long startedAt = System.nanoTime();
+        private long parseNanos;
+        private long validateNanos;
+        private long writeNanos;
+
+        // contentHash — хэш уже сохраненного тела; null — хэш считается при чтении
+        ImportRun(InputStream body, String contentHash, Integer currentUserId, ImportOptions options,
+                IntConsumer afterChunk) {
+            this.body = new HashingInputStream(body);
+            result.setContentHash(contentHash);
+            this.currentUserId = currentUserId;
+            this.options = options;
+            this.afterChunk = afterChunk;
+            result.setDryRun(options.isDryRun());
+        }
+
+        void readAll() {
+            ChunkReader<Product> reader = readerFor(options);
+            long readStart = System.nanoTime();
+            long[] chunkNanos = {0};
+            try {
+                reader.read(body, chunk -> {
+                    long chunkStart = System.nanoTime();
+                    try {
+                        acceptChunk(chunk);
+                    } finally {
+                        chunkNanos[0] += System.nanoTime() - chunkStart;
+                    }
+                });
+            } catch (StopImport e) {
+                // Остановка по первой ошибке: уже записанное сохраняется, остаток тела не читается
+                return;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                // Разбор — все время чтения, кроме обработки пачек
+                parseNanos += System.nanoTime() - readStart - chunkNanos[0];
+            }
+            if (result.getContentHash() != null) {
+                return;
+            }
+            try {
+                // Тело разобрано целиком — хэш покрывает все присланные байты
+                result.setContentHash(body.finish());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void acceptChunk(List<Product> chunk) {
+            long firstRow = nextRow;
+            nextRow += chunk.size();
+            int written = writeChunk(chunk, firstRow, this);
+            result.setImportedRows(result.getImportedRows() + written);
+            afterChunk.accept(chunk.size());
+            if (options.getMaxErrors() > 0 && result.getFailedRows() >= options.getMaxErrors()) {
+                // Лимит ошибок: дальше, скорее всего, тот же брак — не читаем остаток
+                result.setStopped(true);
+                result.setFailureReason("Достигнут лимит ошибок: " + options.getMaxErrors());
+            }
+            if (result.isStopped()) {
+                throw new StopImport();
+            }
+        }
+
+        void countInserted(ChunkOutcome outcome) {
+            if (options.isDryRun()) {
+                return;
+            }
+            ImportResultDto.Metrics metrics = result.getMetrics();
+            metrics.setLocationsInserted(metrics.getLocationsInserted() + outcome.locations);
+            metrics.setAddressesInserted(metrics.getAddressesInserted() + outcome.addresses);
+            metrics.setPersonsInserted(metrics.getPersonsInserted() + outcome.persons);
+            metrics.setOrganizationsInserted(metrics.getOrganizationsInserted() + outcome.organizations);
+            metrics.setProductsInserted(metrics.getProductsInserted() + outcome.written);
+        }
+
+        // Транзакция импорта откатилась: ничего из посчитанного не осталось в базе
+        void discardWrites() {
+            ImportResultDto.Metrics metrics = result.getMetrics();
+            metrics.setLocationsInserted(0);
+            metrics.setAddressesInserted(0);
+            metrics.setPersonsInserted(0);
+            metrics.setOrganizationsInserted(0);
+            metrics.setProductsInserted(0);
+        }
+
+        void complete() {
+            ImportResultDto.Metrics metrics = result.getMetrics();
+            long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+            metrics.setDurationMs(durationMs);
+            metrics.setRowsPerSecond(result.getImportedRows() * 1000.0 / Math.max(durationMs, 1));
+            metrics.setBytesRead(body.getBytesRead());
+            metrics.setParseMs(TimeUnit.NANOSECONDS.toMillis(parseNanos));
+            metrics.setValidateMs(TimeUnit.NANOSECONDS.toMillis(validateNanos));
+            metrics.setWriteMs(TimeUnit.NANOSECONDS.toMillis(writeNanos));
+        }
+    }
+
+    static class ChunkOutcome {
+        private int written;
+        // Сколько вложенных сущностей добавлено (переиспользованные не считаются)
+        private int locations;
+        private int addresses;
+        private int persons;
+        private int organizations;
+        private final List<ImportResultDto.RowError> errors = new ArrayList<>();
+    }
+
+    private static class StopImport extends RuntimeException {
+        StopImport() {
+            super(null, null, false, false);
+        }
+    }
+
+    // Импорт с политикой all-or-nothing встретил ошибку; подробности уже в отчете
+    private static class ImportAbortedException extends RuntimeException {
+        ImportAbortedException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private void recordUpserts(EntityType type, List<Integer> ids) {
+        for (Integer id : ids) {
+            changeLogService.recordUpsert(type, () -> id);
+        }
+    }
+
+    // Ссылка на вложенную сущность внутри ключа: id для существующей записи, сам объект для новой
+    // (сущности не переопределяют equals, поэтому новые сравниваются по идентичности)
+    private static Object ref(Object entity, Integer id) {
+        return entity == null ? null : id != null ? id : entity;
+    }
+
+    private static Object locationKey(Location location) {
+        return new LocationKey(location.getX(), location.getY(), location.getZ());
+    }
+
+    private static Object addressKey(Address address) {
+        return new AddressKey(address.getZipCode(), ref(address.getTown(),
+                address.getTown() == null ? null : address.getTown().getId()));
+    }
+
+    private static Object personKey(Person person) {
+        return new PersonKey(person.getName(), person.getEyeColor(), person.getHairColor(),
+                ref(person.getLocation(), person.getLocation() == null ? null : person.getLocation().getId()),
+                person.getBirthday() == null ? null : person.getBirthday().getTime(), person.getNationality());
+    }
+
+    private static Object organizationKey(Organization organization) {
+        return new OrganizationKey(organization.getName(), organization.getFullName(),
+                organization.getAnnualTurnover(), organization.getEmployeesCount(), organization.getRating(),
+                ref(organization.getOfficialAddress(), idOf(organization.getOfficialAddress())),
+                ref(organization.getPostalAddress(), idOf(organization.getPostalAddress())));
+    }
+
+    private static Integer idOf(Address address) {
+        return address == null ? null : address.getId();
+    }
+
+    // Ключи содержимого: record дает equals/hashCode по всем полям
+    private record LocationKey(long x, Integer y, Double z) {
+    }
+
+    private record AddressKey(String zipCode, Object town) {
+    }
+
+    private record PersonKey(String name, Object eyeColor, Object hairColor, Object location, Long birthday,
+            Object nationality) {
+    }
+
+    private record OrganizationKey(String name, String fullName, Integer annualTurnover, long employeesCount,
+            Integer rating, Object officialAddress, Object postalAddress) {
+    }
+
+    // Новые сущности в порядке появления. Сущности с одинаковым содержимым сводятся к первому экземпляру.
+    // Каждое изменение плана пишется в журнал отмены, чтобы ошибочную строку можно было выбросить целиком
+    private class ImportPlan {
+        private final Integer currentUserId;
+        private final List<Location> locations = new ArrayList<>();
+        private final List<Address> addresses = new ArrayList<>();
+        private final List<Person> persons = new ArrayList<>();
+        private final List<Organization> organizations = new ArrayList<>();
+        private final List<Product> products = new ArrayList<>();
+        // Существующие записи, на которые ссылается пачка; загружаются одним запросом на таблицу
+        private Set<Integer> existingLocationIds = Set.of();
+        private Set<Integer> existingAddressIds = Set.of();
+        private Set<Integer> existingPersonIds = Set.of();
+        private Set<Integer> existingOrganizationIds = Set.of();
+        private final Map<Object, Location> locationByKey = new HashMap<>();
+        private final Map<Object, Address> addressByKey = new HashMap<>();
+        private final Map<Object, Person> personByKey = new HashMap<>();
+        private final Map<Object, Organization> organizationByKey = new HashMap<>();
+        private final Deque<Runnable> undoLog = new ArrayDeque<>();
+        private int merged;
+
+        ImportPlan(Integer currentUserId) {
+            this.currentUserId = currentUserId;
+        }
+
+        void loadReferences(List<Product> chunk) {
+            Set<Integer> locationIds = new HashSet<>();
+            Set<Integer> addressIds = new HashSet<>();
+            Set<Integer> personIds = new HashSet<>();
+            Set<Integer> organizationIds = new HashSet<>();
+            for (Product product : chunk) {
+                Person owner = product.getOwner();
+                if (owner != null) {
+                    if (owner.getId() != null) {
+                        personIds.add(owner.getId());
+                    } else {
+                        addIdOf(locationIds, owner.getCreateLocation());
+                        addIdOf(locationIds, owner.getLocation());
+                        addIfPresent(locationIds, owner.getLinkLocationId());
+                    }
+                }
+                Organization manufacturer = product.getManufacturer();
+                if (manufacturer != null) {
+                    if (manufacturer.getId() != null) {
+                        organizationIds.add(manufacturer.getId());
+                    } else {
+                        for (Address address : new Address[] {manufacturer.getCreateOfficialAddress(),
+                                manufacturer.getCreatePostalAddress()}) {
+                            if (address != null) {
+                                addIdOf(locationIds, address.getCreateTown());
+                                addIdOf(locationIds, address.getTown());
+                            }
+                        }
+                        addIfPresent(addressIds, manufacturer.getLinkOfficialAddressId());
+                        addIfPresent(addressIds, manufacturer.getLinkPostalAddressId());
+                    }
+                }
+            }
+            existingLocationIds = importBatchWriter.findExistingIds("locations", locationIds);
+            existingAddressIds = importBatchWriter.findExistingIds("addresses", addressIds);
+            existingPersonIds = importBatchWriter.findExistingIds("persons", personIds);
+            existingOrganizationIds = importBatchWriter.findExistingIds("organizations", organizationIds);
+        }
+
+        void addProduct(Product product) {
+            int mark = undoLog.size();
+            int mergedBefore = merged;
+            try {
+                // Поля строки уже проверены ImportValidator; здесь — только разрешение графа
+                product.setCreatedBy(currentUserId);
+                // Одинаковые владельцы и производители сводятся к одному объекту и вставляются один раз
+                product.setOwner(addPerson(product.getOwner()));
+                product.setManufacturer(addOrganization(product.getManufacturer()));
+                add(products, product);
+            } catch (RuntimeException e) {
+                while (undoLog.size() > mark) {
+                    undoLog.pop().run();
+                }
+                merged = mergedBefore;
+                throw e;
+            }
+        }
+
+        private Person addPerson(Person person) {
+            if (person.getId() != null) {
+                requireExisting(existingPersonIds, person.getId(), "Человек с ID %d не найден");
+                return person;
+            }
+            person.setCreatedBy(currentUserId);
+            if (person.getCreateLocation() != null) {
+                Location location = addLocation(person.getCreateLocation());
+                if (person.getLocation() == null) {
+                    person.setLocation(location);
+                }
+            } else if (person.getLinkLocationId() != null) {
+                person.setLocation(reference(person.getLinkLocationId()));
+            } else if (person.getLocation() != null) {
+                person.setLocation(addLocation(person.getLocation()));
+            }
+            Person canonical = personByKey.get(personKey(person));
+            if (canonical != null) {
+                merged++;
+                return canonical;
+            }
+            put(personByKey, personKey(person), person);
+            add(persons, person);
+            return person;
+        }
+
+        private Organization addOrganization(Organization organization) {
+            if (organization.getId() != null) {
+                requireExisting(existingOrganizationIds, organization.getId(), "Организация с ID %d не найдена");
+                return organization;
+            }
+            organization.setCreatedBy(currentUserId);
+            organization.setOfficialAddress(addAddress(
+                    organization.getCreateOfficialAddress(), organization.getLinkOfficialAddressId()));
+            organization.setPostalAddress(addAddress(
+                    organization.getCreatePostalAddress(), organization.getLinkPostalAddressId()));
+            Organization canonical = organizationByKey.get(organizationKey(organization));
+            if (canonical != null) {
+                merged++;
+                return canonical;
+            }
+            put(organizationByKey, organizationKey(organization), organization);
+            add(organizations, organization);
+            return organization;
+        }
+
+        private Address addAddress(Address createAddress, Integer linkAddressId) {
+            if (createAddress != null) {
+                createAddress.setCreatedBy(currentUserId);
+                if (createAddress.getCreateTown() != null) {
+                    createAddress.setTown(addLocation(createAddress.getCreateTown()));
+                } else if (createAddress.getTown() != null) {
+                    createAddress.setTown(addLocation(createAddress.getTown()));
+                }
+                Address canonical = addressByKey.get(addressKey(createAddress));
+                if (canonical != null) {
+                    merged++;
+                    return canonical;
+                }
+                put(addressByKey, addressKey(createAddress), createAddress);
+                add(addresses, createAddress);
+                return createAddress;
+            } else if (linkAddressId != null) {
+                requireExisting(existingAddressIds, linkAddressId, "Адрес с ID %d не найден");
+                Address address = new Address();
+                address.setId(linkAddressId);
+                return address;
+            }
+            return null;
+        }
+
+        // Локация без id создается, с id — только проверяется на существование
+        private Location addLocation(Location location) {
+            if (location.getId() != null) {
+                requireExisting(existingLocationIds, location.getId(), "Локация с ID %d не найдена");
+                return location;
+            }
+            location.setCreatedBy(currentUserId);
+            Location canonical = locationByKey.get(locationKey(location));
+            if (canonical != null) {
+                merged++;
+                return canonical;
+            }
+            put(locationByKey, locationKey(location), location);
+            add(locations, location);
+            return location;
+        }
+
+        private Location reference(Integer locationId) {
+            requireExisting(existingLocationIds, locationId, "Локация с ID %d не найдена");
+            Location location = new Location();
+            location.setId(locationId);
+            return location;
+        }
+
+        private <T> void add(List<T> list, T value) {
+            list.add(value);
+            undoLog.push(() -> list.remove(list.size() - 1));
+        }
+
+        private <T> void put(Map<Object, T> map, Object key, T value) {
+            map.put(key, value);
+            undoLog.push(() -> map.remove(key));
+        }
+
+        private void requireExisting(Set<Integer> existing, Integer id, String message) {
+            if (!existing.contains(id)) {
+                throw new ResourceNotFoundException(String.format(message, id));
+            }
+        }
+
+        private void addIdOf(Set<Integer> ids, Location location) {
+            if (location != null) {
+                addIfPresent(ids, location.getId());
+            }
+        }
+
+        private void addIfPresent(Set<Integer> ids, Integer id) {
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+
+        // Сопоставление с уже сохраненными записями пользователя снизу вверх: после локаций ключи адресов
+        // и людей ссылаются на их id и могут совпасть с существующими строками. Совпавшие сущности получают id
+        // найденной строки и не вставляются повторно. Поиск идет по индексам (created_by, дискриминатор)
+        void reuseExisting() {
+            reuse(locations, Location::getX, importBatchWriter::findLocations,
+                    BulkImportService::locationKey, Location::setId, Location::getId);
+            reuse(addresses, Address::getZipCode, importBatchWriter::findAddresses,
+                    BulkImportService::addressKey, Address::setId, Address::getId);
+            reuse(persons, Person::getName, importBatchWriter::findPersons,
+                    BulkImportService::personKey, Person::setId, Person::getId);
+            reuse(organizations, Organization::getName, importBatchWriter::findOrganizations,
+                    BulkImportService::organizationKey, Organization::setId, Organization::getId);
+        }
+
+        private <T, D> void reuse(List<T> fresh, Function<T, D> discriminator,
+                BiFunction<Integer, Collection<D>, List<T>> lookup, Function<T, Object> key,
+                BiConsumer<T, Integer> setId, Function<T, Integer> getId) {
+            Set<D> values = new LinkedHashSet<>();
+            for (T entity : fresh) {
+                D value = discriminator.apply(entity);
+                if (value != null) {
+                    values.add(value);
+                }
+            }
+            if (values.isEmpty()) {
+                return;
+            }
+            Map<Object, Integer> existing = new HashMap<>();
+            for (T row : lookup.apply(currentUserId, values)) {
+                existing.putIfAbsent(key.apply(row), getId.apply(row));
+            }
+            int before = fresh.size();
+            fresh.removeIf(entity -> {
+                Integer id = existing.get(key.apply(entity));
+                if (id == null) {
+                    return false;
+                }
+                setId.accept(entity, id);
+                return true;
+            });
+            merged += before - fresh.size();
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.system.services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.system.dto.ChangeSetDto;
+
+// Журнал изменений сущностей: каждая запись получает монотонно растущую версию в момент коммита,
+// поэтому клиенту достаточно запомнить последнюю версию и запрашивать только то, что изменилось после нее
+@Service
+public class ChangeLogService {
+
+    public enum EntityType {
+        PRODUCT, ORGANIZATION, PERSON, ADDRESS, LOCATION, IMPORT_HISTORY
+    }
+
+    public enum Operation {
+        UPSERT, DELETE
+    }
+
+    // Получает уже закоммиченные изменения; вызывается в потоке, завершившем транзакцию, поэтому должен быть быстрым
+    public interface ChangeListener {
+        void onChange(EntityType type, Integer id, Operation operation, long version);
+
+        // Таблица изменилась слишком сильно, чтобы перечислять изменения по одному: клиентам нужна полная перезагрузка
+        default void onReset(EntityType type, long version) {
+        }
+    }
+
+    // Какие таблицы попадают в JSON сущности: изменение вложенной организации меняет и ответ по продуктам
+    private static final Map<EntityType, EnumSet<EntityType>> RENDERED_WITH = new EnumMap<>(Map.of(
+            EntityType.PRODUCT, EnumSet.of(EntityType.PRODUCT, EntityType.ORGANIZATION, EntityType.PERSON,
+                    EntityType.ADDRESS, EntityType.LOCATION),
+            EntityType.ORGANIZATION, EnumSet.of(EntityType.ORGANIZATION, EntityType.ADDRESS, EntityType.LOCATION),
+            EntityType.PERSON, EnumSet.of(EntityType.PERSON, EntityType.LOCATION),
+            EntityType.ADDRESS, EnumSet.of(EntityType.ADDRESS, EntityType.LOCATION),
+            EntityType.LOCATION, EnumSet.of(EntityType.LOCATION),
+            EntityType.IMPORT_HISTORY, EnumSet.of(EntityType.IMPORT_HISTORY)));
+
+    // Сколько последних изменений храним по каждой таблице; более старый since приводит к полной выгрузке
+    private static final int MAX_ENTRIES_PER_ENTITY = 10_000;
+    // Больше изменений одной таблицы в транзакции не держим поштучно (массовый импорт): после коммита
+    // журнал этой таблицы просто сбрасывается, и память транзакции не растет с объемом данных
+    private static final int MAX_PENDING_PER_TRANSACTION = MAX_ENTRIES_PER_ENTITY;
+
+    // Стартуем с текущего времени, чтобы версии не повторялись после перезапуска
+    private final AtomicLong versionCounter = new AtomicLong(System.currentTimeMillis());
+    private final Map<EntityType, EntityLog> logs = new EnumMap<>(EntityType.class);
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    public ChangeLogService() {
+        for (EntityType type : EntityType.values()) {
+            logs.put(type, new EntityLog(versionCounter.get()));
+        }
+    }
+
+    public void addListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    // id новой сущности появляется только после INSERT (IDENTITY), поэтому читаем его уже после коммита
+    public void recordUpsert(EntityType type, Supplier<Integer> id) {
+        record(new PendingChange(type, Operation.UPSERT, id));
+    }
+
+    public void recordDelete(EntityType type, Integer id) {
+        record(new PendingChange(type, Operation.DELETE, () -> id));
+    }
+
+    public long currentVersion(EntityType type) {
+        EntityLog log = logs.get(type);
+        synchronized (log) {
+            return log.lastVersion;
+        }
+    }
+
+    // Версия сериализованного представления: максимум по самой таблице и всем вложенным в ее JSON
+    public long renderedVersion(EntityType type) {
+        long version = 0;
+        for (EntityType dependency : RENDERED_WITH.get(type)) {
+            version = Math.max(version, currentVersion(dependency));
+        }
+        return version;
+    }
+
+    // Сильный ETag для коллекции и ее элементов; меняется при любом коммите, затрагивающем ответ
+    public String entityTag(EntityType type) {
+        return type.name().toLowerCase() + "-" + renderedVersion(type);
+    }
+
+    // Изменения сущностей type после since. Изменение вложенной таблицы (RENDERED_WITH) меняет JSON
+    // сущности, не попадая в ее журнал, поэтому без dependentIds оно приводит к полной выгрузке
+    public <T> ChangeSetDto<T> collectChanges(EntityType type, long since,
+            Supplier<List<T>> loadAll,
+            Function<Collection<Integer>, List<T>> loadByIds) {
+        return collectChanges(type, since, loadAll, loadByIds, null);
+    }
+
+    // dependentIds: вложенная таблица и ее измененные id -> id сущностей type, в JSON которых они входят.
+    // Удаления во вложенных таблицах не учитываются: удалить строку, на которую еще ссылаются, нельзя
+    public <T> ChangeSetDto<T> collectChanges(EntityType type, long since,
+            Supplier<List<T>> loadAll,
+            Function<Collection<Integer>, List<T>> loadByIds,
+            BiFunction<EntityType, Collection<Integer>, Collection<Integer>> dependentIds) {
+        // Версия берется до чтения журналов и выгрузки: то, что закоммитят в промежутке, клиент получит повторно
+        long version = versionCounter.get();
+        // Клиент пришел с версией от прошлого запуска
+        boolean full = since > version;
+        Set<Integer> upsertIds = new LinkedHashSet<>();
+        List<Integer> deleteIds = new ArrayList<>();
+        Map<EntityType, List<Integer>> changedDependencies = new EnumMap<>(EntityType.class);
+
+        // Под блокировкой только чтение журнала; выгрузка из базы — после нее, иначе она держит публикацию изменений
+        for (EntityType table : RENDERED_WITH.get(type)) {
+            if (full) {
+                break;
+            }
+            EntityLog log = logs.get(table);
+            synchronized (log) {
+                // Клиент отстал сильнее, чем хранит журнал
+                full = since < log.horizon;
+                if (full) {
+                    break;
+                }
+                for (Change change : log.changes.tailMap(since, false).values()) {
+                    if (table == type && change.operation() == Operation.DELETE) {
+                        deleteIds.add(change.id());
+                    } else if (table == type) {
+                        upsertIds.add(change.id());
+                    } else if (change.operation() == Operation.UPSERT) {
+                        changedDependencies.computeIfAbsent(table, t -> new ArrayList<>()).add(change.id());
+                    }
+                }
+            }
+        }
+
+        if (full || !changedDependencies.isEmpty() && dependentIds == null) {
+            return new ChangeSetDto<>(version, true, loadAll.get(), List.of());
+        }
+        changedDependencies.forEach((table, ids) -> upsertIds.addAll(dependentIds.apply(table, ids)));
+        deleteIds.forEach(upsertIds::remove);
+        List<T> upserts = upsertIds.isEmpty() ? List.of() : loadByIds.apply(upsertIds);
+        return new ChangeSetDto<>(version, false, upserts, deleteIds);
+    }
+
+    private void record(PendingChange change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(List.of(change));
+            return;
+        }
+
+        TransactionChanges pending = (TransactionChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            TransactionChanges transactionChanges = new TransactionChanges();
+            TransactionSynchronizationManager.bindResource(this, transactionChanges);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ChangeLogService.this);
+                    if (status == STATUS_COMMITTED) {
+                        publish(transactionChanges.changes);
+                        for (EntityType type : transactionChanges.resetTypes) {
+                            reset(type);
+                        }
+                    }
+                }
+            });
+            pending = transactionChanges;
+        }
+        pending.add(change);
+    }
+
+    private void reset(EntityType type) {
+        EntityLog log = logs.get(type);
+        long version;
+        synchronized (log) {
+            version = versionCounter.incrementAndGet();
+            log.reset(version);
+        }
+        for (ChangeListener listener : listeners) {
+            listener.onReset(type, version);
+        }
+    }
+
+    private void publish(List<PendingChange> changes) {
+        for (PendingChange pending : changes) {
+            Integer id = pending.id().get();
+            if (id == null) {
+                continue;
+            }
+            EntityLog log = logs.get(pending.type());
+            long version;
+            synchronized (log) {
+                version = versionCounter.incrementAndGet();
+                log.append(new Change(id, pending.operation()), version);
+            }
+            for (ChangeListener listener : listeners) {
+                listener.onChange(pending.type(), id, pending.operation(), version);
+            }
+        }
+    }
+
+    private record PendingChange(EntityType type, Operation operation, Supplier<Integer> id) {
+    }
+
+    private static class TransactionChanges {
+        private final List<PendingChange> changes = new ArrayList<>();
+        private final Map<EntityType, Integer> counts = new EnumMap<>(EntityType.class);
+        private final EnumSet<EntityType> resetTypes = EnumSet.noneOf(EntityType.class);
+
+        void add(PendingChange change) {
+            EntityType type = change.type();
+            if (resetTypes.contains(type)) {
+                return;
+            }
+            int count = counts.merge(type, 1, Integer::sum);
+            if (count > MAX_PENDING_PER_TRANSACTION) {
+                resetTypes.add(type);
+                changes.removeIf(pending -> pending.type() == type);
+                counts.remove(type);
+                return;
+            }
+            changes.add(change);
+        }
+    }
+
+    private record Change(Integer id, Operation operation) {
+    }
+
+    private static class EntityLog {
+        private final TreeMap<Long, Change> changes = new TreeMap<>();
+        private final Map<Integer, Long> versionById = new HashMap<>();
+        private long horizon; // изменения с версией <= horizon могли быть вытеснены
+        private long lastVersion;
+
+        EntityLog(long startVersion) {
+            this.horizon = startVersion;
+            this.lastVersion = startVersion;
+        }
+
+        // Все, что было до version, считается вытесненным: клиенты со старым since получат полную выгрузку
+        void reset(long version) {
+            changes.clear();
+            versionById.clear();
+            horizon = version;
+            lastVersion = version;
+        }
+
+        void append(Change change, long version) {
+            // Для каждой сущности достаточно помнить только последнее изменение
+            Long previous = versionById.put(change.id(), version);
+            if (previous != null) {
+                changes.remove(previous);
+            }
+            changes.put(version, change);
+            lastVersion = version;
+
+            while (changes.size() > MAX_ENTRIES_PER_ENTITY) {
+                Map.Entry<Long, Change> evicted = changes.pollFirstEntry();
+                versionById.remove(evicted.getValue().id());
+                horizon = evicted.getKey();
+            }
+        }
+    }
+}
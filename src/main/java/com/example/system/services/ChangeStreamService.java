@@ -0,0 +1,248 @@
+package com.example.system.services;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.system.dto.ChangeEventDto;
+import com.example.system.services.ChangeLogService.EntityType;
+import com.example.system.services.ChangeLogService.Operation;
+
+import jakarta.annotation.PreDestroy;
+
+// Рассылает закоммиченные изменения подписчикам SSE. Подписчик не держит поток: события копятся
+// в его ограниченном буфере и раз в FLUSH_INTERVAL_MS отправляются одной пачкой небольшим пулом потоков.
+// У подписчика не больше одной задачи в пуле (heartbeat тоже идет через нее), а тот, чья отправка висит
+// дольше SEND_TIMEOUT_MS, отключается: медленный клиент не копит работу и не держит рассылку остальным
+@Service
+public class ChangeStreamService implements ChangeLogService.ChangeListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeStreamService.class);
+
+    private static final long STREAM_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30); // EventSource переподключится сам
+    private static final long FLUSH_INTERVAL_MS = 100;
+    private static final long HEARTBEAT_INTERVAL_MS = TimeUnit.SECONDS.toMillis(15);
+    private static final int MAX_PENDING_EVENTS = 1_000;
+    private static final int SENDER_THREADS = 4;
+    private static final long SEND_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(5);
+
+    private final ChangeLogService changeLogService;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(daemon("sse-scheduler"));
+    private final ExecutorService senders = Executors.newFixedThreadPool(SENDER_THREADS, daemon("sse-sender"));
+    // Закрытие эмиттера с зависшей отправкой ждет ее конца (методы эмиттера synchronized), поэтому идет
+    // не в планировщике; таких закрытий одновременно не больше, чем потоков рассылки
+    private final ExecutorService closers = Executors.newCachedThreadPool(daemon("sse-closer"));
+
+    @Autowired
+    public ChangeStreamService(ChangeLogService changeLogService) {
+        this.changeLogService = changeLogService;
+        changeLogService.addListener(this);
+        scheduler.scheduleWithFixedDelay(this::flushAll, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::heartbeatAll, HEARTBEAT_INTERVAL_MS, HEARTBEAT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+
+        // Первое событие сразу отдает заголовки и текущие версии, от которых клиент может догрузить /changes
+        Map<String, Long> versions = new LinkedHashMap<>();
+        for (EntityType type : EntityType.values()) {
+            versions.put(type.name(), changeLogService.currentVersion(type));
+        }
+        try {
+            emitter.send(SseEmitter.event().name("ready").data(versions, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            subscribers.remove(subscriber);
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void onChange(EntityType type, Integer id, Operation operation, long version) {
+        ChangeEventDto event = new ChangeEventDto(type.name(), id, operation.name(), version);
+        String key = type.name() + ":" + id;
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(key, event);
+        }
+    }
+
+    @Override
+    public void onReset(EntityType type, long version) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.requestResync();
+        }
+    }
+
+    private void flushAll() {
+        long now = System.currentTimeMillis();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.isStalled(now)) {
+                subscriber.abandon();
+                continue;
+            }
+            if (subscriber.hasPending() && subscriber.sending.compareAndSet(false, true)) {
+                senders.execute(() -> {
+                    try {
+                        subscriber.flush();
+                    } finally {
+                        subscriber.sending.set(false);
+                    }
+                });
+            }
+        }
+    }
+
+    // Heartbeat только помечается: отправит его ближайший flushAll, если подписчик не занят отправкой
+    private void heartbeatAll() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.requestHeartbeat();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        changeLogService.removeListener(this);
+        scheduler.shutdownNow();
+        senders.shutdownNow();
+        closers.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private class Subscriber {
+        private final SseEmitter emitter;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        // Ключ "тип:id" — повторные изменения одной сущности схлопываются до последнего
+        private final LinkedHashMap<String, ChangeEventDto> pending = new LinkedHashMap<>();
+        private boolean overflowed;
+        private boolean heartbeatDue;
+        // Начало текущей отправки; 0 — отправки нет
+        private volatile long sendStartedAt;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        synchronized void offer(String key, ChangeEventDto event) {
+            if (overflowed) {
+                return;
+            }
+            pending.remove(key);
+            pending.put(key, event);
+            if (pending.size() > MAX_PENDING_EVENTS) {
+                // Клиент не успевает читать: вместо накопления отправим ему команду перезагрузить данные
+                pending.clear();
+                overflowed = true;
+            }
+        }
+
+        synchronized void requestResync() {
+            pending.clear();
+            overflowed = true;
+        }
+
+        synchronized void requestHeartbeat() {
+            heartbeatDue = true;
+        }
+
+        synchronized boolean hasPending() {
+            return overflowed || heartbeatDue || !pending.isEmpty();
+        }
+
+        boolean isStalled(long now) {
+            long started = sendStartedAt;
+            return started != 0 && now - started > SEND_TIMEOUT_MS;
+        }
+
+        // Подписчик убирается из рассылки сразу, а эмиттер закрывается с ошибкой в отдельном потоке:
+        // закрытие дождется, пока зависшую запись оборвет таймаут записи контейнера. Поток рассылки
+        // не прерывается — он общий и мог бы уже обслуживать другого подписчика
+        void abandon() {
+            if (subscribers.remove(this)) {
+                logger.debug("SSE subscriber dropped: send blocked for more than {} ms", SEND_TIMEOUT_MS);
+                closers.execute(() -> emitter.completeWithError(
+                        new IOException("SSE send blocked for more than " + SEND_TIMEOUT_MS + " ms")));
+            }
+        }
+
+        void flush() {
+            boolean resync;
+            boolean heartbeat;
+            List<ChangeEventDto> batch;
+            synchronized (this) {
+                resync = overflowed;
+                heartbeat = heartbeatDue;
+                batch = new ArrayList<>(pending.values());
+                pending.clear();
+                overflowed = false;
+                heartbeatDue = false;
+            }
+            try {
+                if (resync) {
+                    send(SseEmitter.event().name("resync").data(Map.of("reason", "overflow"), MediaType.APPLICATION_JSON));
+                } else if (!batch.isEmpty()) {
+                    send(SseEmitter.event().name("changes").data(batch, MediaType.APPLICATION_JSON));
+                } else if (heartbeat) {
+                    send(SseEmitter.event().comment("heartbeat"));
+                }
+            } catch (Exception e) {
+                drop(e);
+            }
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            sendStartedAt = System.currentTimeMillis();
+            try {
+                emitter.send(event);
+            } finally {
+                sendStartedAt = 0;
+            }
+        }
+
+        private void drop(Exception e) {
+            // Уже отключенный подписчик (abandon) закрывается там же
+            if (subscribers.remove(this)) {
+                logger.debug("SSE subscriber dropped: {}", e.getMessage());
+                emitter.completeWithError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.system.services;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.system.dto.ImportRollupDto;
+import com.example.system.repositories.ImportRollupRepository;
+import com.example.system.repositories.ImportRollupRepository.DurationCount;
+import com.example.system.services.ChangeLogService.EntityType;
+import com.example.system.utils.CoalescedRead;
+
+// Аналитика импорта только по сверткам: число импортов и строк, доля успешных и перцентили длительности
+// по пользователю за час/день или за период. Сырая история не сканируется
+@Service
+public class ImportAnalyticsService {
+
+    public enum Granularity {
+        HOUR(Duration.ofDays(31)), DAY(Duration.ofDays(366));
+
+        // Наибольший запрашиваемый период: ограничивает число строк ответа
+        private final Duration maxRange;
+
+        Granularity(Duration maxRange) {
+            this.maxRange = maxRange;
+        }
+
+        public static Granularity parse(String value) {
+            for (Granularity granularity : values()) {
+                if (granularity.name().equalsIgnoreCase(value)) {
+                    return granularity;
+                }
+            }
+            throw new IllegalArgumentException("Неизвестная гранулярность: " + value);
+        }
+    }
+
+    private final ImportRollupRepository importRollupRepository;
+
+    @Autowired
+    public ImportAnalyticsService(ImportRollupRepository importRollupRepository) {
+        this.importRollupRepository = importRollupRepository;
+    }
+
+    // Свертки за каждый час/день периода [from, to); userId == null — по всем пользователям
+    @CoalescedRead(EntityType.IMPORT_HISTORY)
+    public List<ImportRollupDto> getRollups(Granularity granularity, Integer userId, Date from, Date to) {
+        checkRange(granularity, from, to);
+        List<ImportRollupDto> rollups = importRollupRepository.findRollups(granularity.name(), userId,
+                new Timestamp(from.getTime()), new Timestamp(to.getTime()));
+        Map<String, Map<Integer, Long>> histograms = new HashMap<>();
+        for (DurationCount count : importRollupRepository.findDurations(granularity.name(), userId,
+                new Timestamp(from.getTime()), new Timestamp(to.getTime()))) {
+            histograms.computeIfAbsent(count.userId() + "@" + count.bucketStart().getTime(), key -> new TreeMap<>())
+                    .merge(count.bucket(), count.imports(), Long::sum);
+        }
+        for (ImportRollupDto rollup : rollups) {
+            finish(rollup, histograms.get(rollup.getUserId() + "@" + rollup.getBucketStart().getTime()));
+        }
+        return rollups;
+    }
+
+    // Итог за период по каждому пользователю: свертки и гистограммы периода складываются
+    @CoalescedRead(EntityType.IMPORT_HISTORY)
+    public List<ImportRollupDto> getSummary(Granularity granularity, Integer userId, Date from, Date to) {
+        checkRange(granularity, from, to);
+        Map<Integer, ImportRollupDto> totals = new LinkedHashMap<>();
+        for (ImportRollupDto rollup : importRollupRepository.findRollups(granularity.name(), userId,
+                new Timestamp(from.getTime()), new Timestamp(to.getTime()))) {
+            ImportRollupDto total = totals.computeIfAbsent(rollup.getUserId(), id -> {
+                ImportRollupDto dto = new ImportRollupDto();
+                dto.setUserId(id);
+                dto.setGranularity(granularity.name());
+                return dto;
+            });
+            total.setImports(total.getImports() + rollup.getImports());
+            total.setSucceeded(total.getSucceeded() + rollup.getSucceeded());
+            total.setRowsImported(total.getRowsImported() + rollup.getRowsImported());
+            total.setRowsFailed(total.getRowsFailed() + rollup.getRowsFailed());
+            total.setBytesRead(total.getBytesRead() + rollup.getBytesRead());
+            total.setDurationMsSum(total.getDurationMsSum() + rollup.getDurationMsSum());
+        }
+        Map<Integer, Map<Integer, Long>> histograms = new HashMap<>();
+        for (DurationCount count : importRollupRepository.findDurations(granularity.name(), userId,
+                new Timestamp(from.getTime()), new Timestamp(to.getTime()))) {
+            histograms.computeIfAbsent(count.userId(), key -> new TreeMap<>())
+                    .merge(count.bucket(), count.imports(), Long::sum);
+        }
+        List<ImportRollupDto> result = new ArrayList<>(totals.values());
+        for (ImportRollupDto total : result) {
+            finish(total, histograms.get(total.getUserId()));
+        }
+        return result;
+    }
+
+    private static void checkRange(Granularity granularity, Date from, Date to) {
+        if (!from.before(to)) {
+            throw new IllegalArgumentException("Начало периода должно быть раньше конца");
+        }
+        if (to.getTime() - from.getTime() > granularity.maxRange.toMillis()) {
+            throw new IllegalArgumentException("Период для " + granularity.name().toLowerCase()
+                    + " не может быть длиннее " + granularity.maxRange.toDays() + " дней");
+        }
+    }
+
+    // histogram — корзина длительности -> число импортов, по возрастанию корзин
+    private static void finish(ImportRollupDto rollup, Map<Integer, Long> histogram) {
+        long imports = rollup.getImports();
+        rollup.setSuccessRatio(imports == 0 ? 0.0 : rollup.getSucceeded() / (double) imports);
+        rollup.setAvgDurationMs(imports == 0 ? 0.0 : rollup.getDurationMsSum() / (double) imports);
+        if (histogram != null) {
+            rollup.setP50DurationMs(percentile(histogram, 0.50));
+            rollup.setP95DurationMs(percentile(histogram, 0.95));
+        }
+    }
+
+    private static long percentile(Map<Integer, Long> histogram, double quantile) {
+        long total = histogram.values().stream().mapToLong(Long::longValue).sum();
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (Map.Entry<Integer, Long> entry : histogram.entrySet()) {
+            seen += entry.getValue();
+            if (seen >= rank) {
+                return ImportRollupRepository.bucketUpperMs(entry.getKey());
+            }
+        }
+        return 0;
+    }
+}
@@ -1,46 +1,331 @@
 package com.example.system.services;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.example.system.dto.ChangeSetDto;
+import com.example.system.dto.CursorPageDto;
+import com.example.system.dto.CursorPageRequest;
+import com.example.system.dto.ImportResultDto;
 import com.example.system.entities.ImportHistory;
+import com.example.system.repositories.EntitySpecifications;
 import com.example.system.repositories.ImportHistoryRepository;
+import com.example.system.repositories.ImportHistoryWriter;
+import com.example.system.repositories.ImportRollupRepository;
+import com.example.system.services.ChangeLogService.EntityType;
+import com.example.system.utils.CoalescedRead;
+import com.example.system.utils.KeysetPager;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.annotation.PreDestroy;
+
+// Итоги импорта пишутся через очередь с отложенной записью: импорт только кладет запись в очередь,
+// фоновый поток раз в FLUSH_INTERVAL_MS сохраняет накопившееся одним пакетным INSERT в своей транзакции.
+// Пока запись не сохранена, поиск повторов видит ее в очереди
 @Service
 public class ImportHistoryService {
 
-    private static final Logger logger = LoggerFactory.getLogger(OrganizationService.class);
+    private static final Logger logger = LoggerFactory.getLogger(ImportHistoryService.class);
+    private static final Map<String, Class<?>> SORTABLE = Map.of(
+            "id", Long.class,
+            "userId", Integer.class,
+            "successCount", Integer.class,
+            "timestamp", Date.class);
+    private static final long FLUSH_INTERVAL_MS = 200;
+    // Повтор импорта распознается в пределах этого окна; старше — импортируется заново
+    private static final long IDEMPOTENCY_WINDOW_DAYS = 30;
+    private static final int MAX_BATCH = 500;
+    private static final int QUEUE_CAPACITY = 10_000;
     private final ImportHistoryRepository importHistoryRepository;
+    private final ImportHistoryWriter importHistoryWriter;
+    private final ImportRollupRepository importRollupRepository;
+    private final ChangeLogService changeLogService;
+    private final KeysetPager keysetPager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate writeTransaction;
+    private final BlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    // Пачка, которую фоновый поток сейчас пишет: уже не в очереди, но еще не в базе
+    private volatile List<PendingRecord> flushing = List.of();
+    // Перенос из очереди в flushing и чтение обоих для поиска повторов: иначе запись в момент переноса не видна нигде
+    private final Object pendingLock = new Object();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "import-history-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     @Autowired
-    public ImportHistoryService(ImportHistoryRepository importHistoryRepository) {
+    public ImportHistoryService(ImportHistoryRepository importHistoryRepository, ImportHistoryWriter importHistoryWriter,
+            ImportRollupRepository importRollupRepository, ChangeLogService changeLogService, KeysetPager keysetPager, ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager) {
         this.importHistoryRepository = importHistoryRepository;
+        this.importHistoryWriter = importHistoryWriter;
+        this.importRollupRepository = importRollupRepository;
+        this.changeLogService = changeLogService;
+        this.keysetPager = keysetPager;
+        this.objectMapper = objectMapper;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        flusher.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
     }
 
-    // Сохраняем историю импорта
-    public void saveImportHistory(int userId, int successCount) {
+    // Итог импорта любого исхода вместе с метриками, компактным отчетом об ошибочных строках и данными
+    // для поиска повторов. Вызывается после завершения транзакции импорта и не ждет записи в базу;
+    // historyId появится в result, когда запись будет сохранена
+    public void recordImportResult(int userId, ImportResultDto result, String idempotencyKey) {
         ImportHistory history = new ImportHistory();
         history.setUserId(userId);
-        history.setStatus("SUCCESS");  // Можете добавить статус "ERROR", если нужно
-        history.setSuccessCount(successCount);
+        history.setStatus(result.getStatus());
+        history.setSuccessCount(result.getImportedRows());
+        history.setErrorCount(result.getFailedRows());
+        if (!result.getErrors().isEmpty()) {
+            try {
+                history.setErrorReport(objectMapper.writeValueAsString(result.getErrors()));
+            } catch (JsonProcessingException e) {
+                logger.warn("Failed to serialize import error report: {}", e.getMessage());
+            }
+        }
+        history.setIdempotencyKey(idempotencyKey);
+        history.setContentHash(result.getContentHash());
+        String reason = result.getFailureReason();
+        history.setFailureReason(reason == null || reason.length() <= 1000 ? reason : reason.substring(0, 1000));
+        ImportResultDto.Metrics metrics = result.getMetrics();
+        history.setDurationMs(metrics.getDurationMs());
+        history.setRowsPerSecond(metrics.getRowsPerSecond());
+        history.setBytesRead(metrics.getBytesRead());
+        history.setParseMs(metrics.getParseMs());
+        history.setValidateMs(metrics.getValidateMs());
+        history.setWriteMs(metrics.getWriteMs());
+        history.setLocationsInserted(metrics.getLocationsInserted());
+        history.setAddressesInserted(metrics.getAddressesInserted());
+        history.setPersonsInserted(metrics.getPersonsInserted());
+        history.setOrganizationsInserted(metrics.getOrganizationsInserted());
+        history.setProductsInserted(metrics.getProductsInserted());
         history.setTimestamp(new Date());
-        logger.info("saving history");
-        importHistoryRepository.save(history);  // Сохраняем в базу данных
-        logger.info("history saved");
+        PendingRecord record = new PendingRecord(history, result);
+        if (!queue.offer(record)) {
+            // Очередь переполнена (база недоступна или не успевает): пишем сами, транзакция импорта уже закрыта
+            write(List.of(record));
+        }
+    }
+
+    public int getPendingCount() {
+        return queue.size() + flushing.size();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private void flush() {
+        while (true) {
+            List<PendingRecord> batch = new ArrayList<>(MAX_BATCH);
+            synchronized (pendingLock) {
+                if (queue.drainTo(batch, MAX_BATCH) == 0) {
+                    return;
+                }
+                flushing = batch;
+            }
+            try {
+                write(batch);
+            } finally {
+                flushing = List.of();
+            }
+        }
+    }
+
+    private void write(List<PendingRecord> batch) {
+        try {
+            insert(batch);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                dropped.incrementAndGet();
+                logger.error("Failed to save import history for user {}: {}", batch.get(0).history.getUserId(),
+                        e.getMessage());
+                return;
+            }
+            // Одна некорректная запись не должна терять всю пачку: повторяем по одной
+            logger.warn("Failed to save import history batch of {}, retrying one by one: {}", batch.size(), e.getMessage());
+            for (PendingRecord record : batch) {
+                write(List.of(record));
+            }
+        }
+    }
+
+    private void insert(List<PendingRecord> batch) {
+        writeTransaction.executeWithoutResult(status -> {
+            List<ImportHistory> records = batch.stream().map(record -> record.history).toList();
+            importHistoryWriter.insert(records);
+            // Свертки меняются в той же транзакции: аналитика не расходится с историей
+            importRollupRepository.record(records);
+            for (ImportHistory history : records) {
+                changeLogService.recordUpsert(EntityType.IMPORT_HISTORY, () -> history.getId().intValue());
+            }
+        });
+        for (PendingRecord record : batch) {
+            record.result.setHistoryId(record.history.getId());
+        }
+        written.addAndGet(batch.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Остаток очереди дописываем при остановке
+        flush();
+    }
+
+    // Итог предыдущего импорта с тем же ключом или тем же телом. Повторяются только импорты, которые что-то
+    // записали: после ошибки или отмены без записанных строк повторная отправка безопасна и выполняется заново
+    public ImportResultDto findPriorResult(int userId, String idempotencyKey, String contentHash) {
+        if (idempotencyKey == null && contentHash == null) {
+            return null;
+        }
+        // Сначала еще не сохраненные записи: повтор может прийти раньше, чем очередь дойдет до базы
+        ImportHistory pending = findPending(userId, idempotencyKey, contentHash);
+        if (pending != null) {
+            return toResult(pending);
+        }
+        Date since = daysAgo(IDEMPOTENCY_WINDOW_DAYS);
+        List<ImportHistory> candidates = idempotencyKey != null
+                ? importHistoryRepository.findByUserIdAndIdempotencyKeyAndTimestampGreaterThanEqualOrderByIdDesc(
+                        userId, idempotencyKey, since)
+                : importHistoryRepository.findByUserIdAndContentHashAndTimestampGreaterThanEqualOrderByIdDesc(
+                        userId, contentHash, since);
+        for (ImportHistory history : candidates) {
+            if (isReplayable(history)) {
+                return toResult(history);
+            }
+        }
+        return null;
+    }
+
+    private ImportHistory findPending(int userId, String idempotencyKey, String contentHash) {
+        List<PendingRecord> records;
+        synchronized (pendingLock) {
+            records = new ArrayList<>(flushing);
+            records.addAll(queue);
+        }
+        for (int i = records.size() - 1; i >= 0; i--) {
+            ImportHistory history = records.get(i).history;
+            boolean sameImport = idempotencyKey != null
+                    ? idempotencyKey.equals(history.getIdempotencyKey())
+                    : contentHash.equals(history.getContentHash());
+            if (history.getUserId() == userId && sameImport && isReplayable(history)) {
+                return history;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isReplayable(ImportHistory history) {
+        return "SUCCESS".equals(history.getStatus()) || history.getSuccessCount() > 0;
+    }
+
+    private ImportResultDto toResult(ImportHistory history) {
+        ImportResultDto result = new ImportResultDto();
+        result.setStatus(history.getStatus());
+        result.setImportedRows(history.getSuccessCount());
+        result.setFailedRows(history.getErrorCount());
+        result.setHistoryId(history.getId());
+        result.setContentHash(history.getContentHash());
+        result.setDuplicate(true);
+        result.setFailureReason(history.getFailureReason());
+        ImportResultDto.Metrics metrics = result.getMetrics();
+        metrics.setDurationMs(history.getDurationMs());
+        metrics.setRowsPerSecond(history.getRowsPerSecond());
+        metrics.setBytesRead(history.getBytesRead());
+        metrics.setParseMs(history.getParseMs());
+        metrics.setValidateMs(history.getValidateMs());
+        metrics.setWriteMs(history.getWriteMs());
+        metrics.setLocationsInserted(history.getLocationsInserted());
+        metrics.setAddressesInserted(history.getAddressesInserted());
+        metrics.setPersonsInserted(history.getPersonsInserted());
+        metrics.setOrganizationsInserted(history.getOrganizationsInserted());
+        metrics.setProductsInserted(history.getProductsInserted());
+        if (history.getErrorReport() != null) {
+            try {
+                result.setErrors(new ArrayList<>(List.of(
+                        objectMapper.readValue(history.getErrorReport(), ImportResultDto.RowError[].class))));
+            } catch (JsonProcessingException e) {
+                logger.warn("Failed to read import error report {}: {}", history.getId(), e.getMessage());
+            }
+        }
+        return result;
     }
 
     // Можно добавить методы для получения истории, например:
+    @CoalescedRead(EntityType.IMPORT_HISTORY)
     public List<ImportHistory> getImportHistory() {
         return importHistoryRepository.findAll();
     }
 
+    @CoalescedRead(EntityType.IMPORT_HISTORY)
+    public CursorPageDto<ImportHistory> getImportHistoryPage(CursorPageRequest page, Integer userId, String status,
+            Date from, Date to) {
+        // С userId и sort=timestamp выборка идет по индексу (userId, timestamp)
+        Specification<ImportHistory> filter = Specification.allOf(
+                EntitySpecifications.equalTo("userId", userId),
+                EntitySpecifications.equalTo("status", status),
+                EntitySpecifications.atLeast("timestamp", from),
+                EntitySpecifications.before("timestamp", to));
+        return keysetPager.page(importHistoryRepository, filter, page, SORTABLE);
+    }
+
+    @CoalescedRead(EntityType.IMPORT_HISTORY)
+    public ChangeSetDto<ImportHistory> getImportHistoryChanges(long since) {
+        // Снимок — вся история, как и /all; дельта — только измененные id
+        return changeLogService.collectChanges(EntityType.IMPORT_HISTORY, since,
+                importHistoryRepository::findAll,
+                ids -> importHistoryRepository.findAllById(ids.stream().map(Integer::longValue).toList()));
+    }
+
     // Пример для получения истории конкретного пользователя
+    @CoalescedRead(EntityType.IMPORT_HISTORY)
     public List<ImportHistory> getImportHistoryByUserId(int userId) {
         return importHistoryRepository.findByUserId(userId);
     }
+
+    private static Date daysAgo(long days) {
+        return new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(days));
+    }
+
+    private static class PendingRecord {
+        private final ImportHistory history;
+        private final ImportResultDto result;
+
+        PendingRecord(ImportHistory history, ImportResultDto result) {
+            this.history = history;
+            this.result = result;
+        }
+    }
 }
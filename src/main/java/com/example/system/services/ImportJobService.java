@@ -0,0 +1,299 @@
+package com.example.system.services;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.system.dto.ImportJobDto;
+import com.example.system.dto.ImportResultDto;
+import com.example.system.exceptions.ForbiddenOperationException;
+import com.example.system.exceptions.ImportCancelledException;
+import com.example.system.exceptions.ResourceNotFoundException;
+import com.example.system.services.BulkImportService.ImportOptions;
+import com.example.system.utils.HashingInputStream;
+import com.example.system.utils.ImportScheduler;
+
+import jakarta.annotation.PreDestroy;
+
+// Асинхронный импорт: тело запроса (JSON, NDJSON или CSV) сохраняется во временный файл, сама загрузка
+// идет на пуле ImportScheduler, когда до пользователя дойдет очередь. Прогресс считается по прочитанным байтам файла,
+// отмена откатывает транзакцию
+@Service
+public class ImportJobService {
+
+    public enum JobStatus {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportJobService.class);
+    // Завершенные задачи хранятся час, чтобы клиент успел забрать итог
+    private static final long RETENTION_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final BulkImportService bulkImportService;
+    private final AuthorizationService authorizationService;
+    private final ImportHistoryService importHistoryService;
+    // Переполнение очереди — RejectedExecutionException, контроллер отвечает 503
+    private final ImportScheduler importScheduler;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ImportJobService(BulkImportService bulkImportService,
+            AuthorizationService authorizationService,
+            ImportHistoryService importHistoryService,
+            ImportScheduler importScheduler) {
+        this.bulkImportService = bulkImportService;
+        this.authorizationService = authorizationService;
+        this.importHistoryService = importHistoryService;
+        this.importScheduler = importScheduler;
+    }
+
+    public ImportJobDto submit(InputStream body, Integer userId, ImportOptions options) throws IOException {
+        pruneFinished();
+        Path file = Files.createTempFile("import-", "." + options.getFormat().name().toLowerCase());
+        try {
+            // Хэш считается при сохранении тела, поэтому повтор распознается до постановки в очередь
+            HashingInputStream hashing = new HashingInputStream(body);
+            Files.copy(hashing, file, StandardCopyOption.REPLACE_EXISTING);
+            String contentHash = hashing.finish();
+            Job job = new Job(UUID.randomUUID().toString(), userId, options, file, Files.size(file), contentHash);
+            synchronized (jobs) {
+                if (!options.isDryRun()) {
+                    Job running = findSameUnfinished(job);
+                    if (running != null) {
+                        Files.deleteIfExists(file);
+                        return running.toDto();
+                    }
+                    ImportResultDto prior = findPriorResult(job);
+                    if (prior != null) {
+                        // Уже импортировано: задача сразу завершена с прежним итогом
+                        job.result = prior;
+                        job.finish(JobStatus.SUCCEEDED, null);
+                        jobs.put(job.id, job);
+                        Files.deleteIfExists(file);
+                        return job.toDto();
+                    }
+                }
+                jobs.put(job.id, job);
+            }
+            try {
+                job.ticket = importScheduler.submit(userId, () -> run(job));
+            } catch (RuntimeException e) {
+                jobs.remove(job.id);
+                throw e;
+            }
+            return job.toDto();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    public ImportJobDto getJob(String id, Integer currentUserId) {
+        return findAccessible(id, currentUserId).toDto();
+    }
+
+    // Задача в очереди снимается сразу; выполняющаяся остановится после текущей пачки и откатит транзакцию
+    // (при коммите по пачкам уже закоммиченные пачки остаются)
+    public ImportJobDto cancel(String id, Integer currentUserId) {
+        Job job = findAccessible(id, currentUserId);
+        job.cancelRequested = true;
+        if (job.status == JobStatus.QUEUED && job.ticket != null && job.ticket.cancel()) {
+            job.finish(JobStatus.CANCELLED, null);
+            deleteFile(job);
+        }
+        return job.toDto();
+    }
+
+    private void run(Job job) {
+        if (job.cancelRequested) {
+            job.finish(JobStatus.CANCELLED, null);
+            deleteFile(job);
+            return;
+        }
+        job.status = JobStatus.RUNNING;
+        job.startedAt = System.currentTimeMillis();
+        try (InputStream in = new CountingInputStream(Files.newInputStream(job.file), job.bytesRead)) {
+            // Транзакции и запись итога в историю — на стороне BulkImportService согласно параметрам задачи
+            ImportResultDto result = bulkImportService.runImport(in, job.userId, job.options, job.contentHash,
+                    rows -> {
+                        job.rowsProcessed.addAndGet(rows);
+                        if (job.cancelRequested) {
+                            throw new ImportCancelledException();
+                        }
+                    });
+            job.result = result;
+            job.finish(statusOf(result), null);
+            logger.info("Import job {} finished: {}", job.id, result.getStatus());
+        } catch (Exception e) {
+            job.finish(JobStatus.FAILED, e.getMessage());
+            logger.error("Import job {} failed: {}", job.id, e.getMessage());
+        } finally {
+            deleteFile(job);
+        }
+    }
+
+    // Та же задача пользователя еще в очереди или выполняется: повтор получает ее, а не новую
+    private Job findSameUnfinished(Job job) {
+        String key = job.options.getIdempotencyKey();
+        for (Job other : jobs.values()) {
+            if (other.finishedAt == 0 && other.userId.equals(job.userId) && !other.options.isDryRun()
+                    && (key != null && key.equals(other.options.getIdempotencyKey())
+                            || job.contentHash.equals(other.contentHash))) {
+                return other;
+            }
+        }
+        return null;
+    }
+
+    private ImportResultDto findPriorResult(Job job) {
+        String key = job.options.getIdempotencyKey();
+        ImportResultDto prior = key == null ? null : importHistoryService.findPriorResult(job.userId, key, null);
+        return prior != null ? prior : importHistoryService.findPriorResult(job.userId, null, job.contentHash);
+    }
+
+    private static JobStatus statusOf(ImportResultDto result) {
+        return switch (result.getStatus()) {
+            case "CANCELLED" -> JobStatus.CANCELLED;
+            case "ERROR" -> JobStatus.FAILED;
+            default -> JobStatus.SUCCEEDED;
+        };
+    }
+
+    private Job findAccessible(String id, Integer currentUserId) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            throw new ResourceNotFoundException("Задача импорта с ID " + id + " не найдена");
+        }
+        if (!job.userId.equals(currentUserId) && !authorizationService.isAdmin(currentUserId)) {
+            throw new ForbiddenOperationException("У вас нет прав на эту задачу импорта");
+        }
+        return job;
+    }
+
+    private void pruneFinished() {
+        long threshold = System.currentTimeMillis() - RETENTION_MS;
+        jobs.values().removeIf(job -> job.finishedAt != 0 && job.finishedAt < threshold);
+    }
+
+    private static void deleteFile(Job job) {
+        try {
+            Files.deleteIfExists(job.file);
+        } catch (IOException e) {
+            logger.warn("Failed to delete import file {}: {}", job.file, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Job job : jobs.values()) {
+            job.cancelRequested = true;
+        }
+    }
+
+    private static class Job {
+        private final String id;
+        private final Integer userId;
+        private final ImportOptions options;
+        private final Path file;
+        private final long totalBytes;
+        private final String contentHash;
+        private final long createdAt = System.currentTimeMillis();
+        private final AtomicLong rowsProcessed = new AtomicLong();
+        private final AtomicLong bytesRead = new AtomicLong();
+        private volatile JobStatus status = JobStatus.QUEUED;
+        private volatile boolean cancelRequested;
+        private volatile long startedAt;
+        private volatile long finishedAt;
+        private volatile String error;
+        private volatile ImportScheduler.Ticket ticket;
+        private volatile ImportResultDto result;
+
+        Job(String id, Integer userId, ImportOptions options, Path file, long totalBytes, String contentHash) {
+            this.id = id;
+            this.userId = userId;
+            this.options = options;
+            this.file = file;
+            this.totalBytes = totalBytes;
+            this.contentHash = contentHash;
+        }
+
+        synchronized void finish(JobStatus finalStatus, String message) {
+            if (finishedAt == 0) {
+                status = finalStatus;
+                error = message;
+                finishedAt = System.currentTimeMillis();
+            }
+        }
+
+        ImportJobDto toDto() {
+            ImportJobDto dto = new ImportJobDto();
+            dto.setId(id);
+            dto.setStatus(status.name());
+            dto.setMode(options.getMode().name());
+            long rows = rowsProcessed.get();
+            long bytes = bytesRead.get();
+            dto.setRowsProcessed(rows);
+            dto.setBytesRead(bytes);
+            dto.setTotalBytes(totalBytes);
+            dto.setError(error);
+            dto.setCreatedAt(new Date(createdAt));
+            if (startedAt != 0) {
+                dto.setStartedAt(new Date(startedAt));
+                long end = finishedAt != 0 ? finishedAt : System.currentTimeMillis();
+                double seconds = Math.max(end - startedAt, 1) / 1000.0;
+                dto.setRowsPerSecond(rows / seconds);
+                // Число строк в файле заранее неизвестно, поэтому оценка идет по скорости чтения байтов
+                if (status == JobStatus.RUNNING && bytes > 0) {
+                    double bytesPerSecond = bytes / seconds;
+                    dto.setEtaSeconds(Math.round(Math.max(totalBytes - bytes, 0) / bytesPerSecond));
+                }
+            }
+            if (finishedAt != 0) {
+                dto.setFinishedAt(new Date(finishedAt));
+            }
+            dto.setResult(result);
+            return dto;
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private final AtomicLong counter;
+
+        CountingInputStream(InputStream in, AtomicLong counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                counter.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                counter.addAndGet(n);
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.system.services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.system.dto.ImportResultDto.RowError;
+import com.example.system.entities.Address;
+import com.example.system.entities.Location;
+import com.example.system.entities.Organization;
+import com.example.system.entities.Person;
+import com.example.system.entities.Product;
+import com.example.system.repositories.ImportBatchWriter;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+// Этап проверки импорта до записи: аннотации сущностей (Bean Validation) и правила сервисов, строки пачки
+// проверяются параллельно на всех ядрах, уникальность partNumber — одним запросом на пачку.
+// Правила сервисов вызываются как статические методы: через прокси сервиса каждая проверка открыла бы
+// транзакцию и заняла соединение пула. Проверки, требующие разрешенного графа (существование связанных
+// записей), остаются в плане импорта
+@Service
+public class ImportValidator {
+
+    // Меньшие пачки не делятся: накладные расходы на задачи больше выигрыша
+    private static final int MIN_SLICE = 256;
+
+    // Местоположение человека при импорте задается через createLocation или linkLocationId
+    private static final Predicate<ConstraintViolation<?>> EXCEPT_PERSON_LOCATION =
+            violation -> !violation.getPropertyPath().toString().equals("location");
+
+    private final ImportBatchWriter importBatchWriter;
+    private final Validator validator;
+    private final int parallelism = Runtime.getRuntime().availableProcessors();
+    private final ExecutorService workers = Executors.newFixedThreadPool(parallelism, daemon("import-validator"));
+
+    @Autowired
+    public ImportValidator(ImportBatchWriter importBatchWriter, Validator validator) {
+        this.importBatchWriter = importBatchWriter;
+        this.validator = validator;
+    }
+
+    // Ошибки по номерам строк (firstRow — номер первой строки пачки). seenPartNumbers накапливает partNumber
+    // всех принятых строк импорта, чтобы находить повторы между пачками
+    public Map<Long, RowError> validate(List<Product> chunk, long firstRow, Set<String> seenPartNumbers) {
+        String[] errors = checkRows(chunk);
+
+        // partNumber: повторы внутри импорта и уже сохраненные — один запрос на всю пачку
+        Map<String, Integer> candidates = new LinkedHashMap<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            String partNumber = chunk.get(i).getPartNumber();
+            if (errors[i] != null || partNumber == null) {
+                continue;
+            }
+            if (seenPartNumbers.contains(partNumber) || candidates.containsKey(partNumber)) {
+                errors[i] = "Part Number " + partNumber + " повторяется в импорте";
+            } else {
+                candidates.put(partNumber, i);
+            }
+        }
+        for (String partNumber : importBatchWriter.findExistingPartNumbers(candidates.keySet())) {
+            errors[candidates.remove(partNumber)] = "Part Number " + partNumber + " уже существует";
+        }
+        seenPartNumbers.addAll(candidates.keySet());
+
+        Map<Long, RowError> result = new LinkedHashMap<>();
+        for (int i = 0; i < errors.length; i++) {
+            if (errors[i] != null) {
+                result.put(firstRow + i, new RowError(firstRow + i, firstRow + i, errors[i]));
+            }
+        }
+        return result;
+    }
+
+    private String[] checkRows(List<Product> chunk) {
+        String[] errors = new String[chunk.size()];
+        int slices = Math.min(parallelism, Math.max(1, chunk.size() / MIN_SLICE));
+        if (slices == 1) {
+            checkSlice(chunk, 0, chunk.size(), errors);
+            return errors;
+        }
+        int sliceSize = (chunk.size() + slices - 1) / slices;
+        List<Callable<Void>> tasks = new ArrayList<>(slices);
+        for (int from = 0; from < chunk.size(); from += sliceSize) {
+            int start = from;
+            int end = Math.min(from + sliceSize, chunk.size());
+            tasks.add(() -> {
+                checkSlice(chunk, start, end, errors);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> future : workers.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Проверка импорта прервана", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        }
+        return errors;
+    }
+
+    // Каждая задача пишет только в свой диапазон массива
+    private void checkSlice(List<Product> chunk, int from, int to, String[] errors) {
+        for (int i = from; i < to; i++) {
+            try {
+                errors[i] = checkProduct(chunk.get(i));
+            } catch (RuntimeException e) {
+                errors[i] = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            }
+        }
+    }
+
+    private String checkProduct(Product product) {
+        if (product.getOwner() == null || product.getManufacturer() == null) {
+            return "Владелец или производитель не могут быть null.";
+        }
+        String error = check(product, "product", violation -> true);
+        if (error != null) {
+            return error;
+        }
+        ProductService.validateProduct(product);
+
+        Person owner = product.getOwner();
+        if (owner.getId() == null) {
+            error = firstNonNull(check(owner, "person", EXCEPT_PERSON_LOCATION),
+                    checkLocation(owner.getCreateLocation()), checkLocation(owner.getLocation()));
+            if (error != null) {
+                return error;
+            }
+            if (owner.getCreateLocation() == null && owner.getLinkLocationId() == null && owner.getLocation() == null) {
+                return "Местоположение человека не может быть null";
+            }
+            PersonService.validatePersonFields(owner);
+        }
+
+        Organization manufacturer = product.getManufacturer();
+        if (manufacturer.getId() == null) {
+            error = firstNonNull(check(manufacturer, "organization", violation -> true),
+                    checkAddress(manufacturer.getCreateOfficialAddress()),
+                    checkAddress(manufacturer.getCreatePostalAddress()));
+            if (error != null) {
+                return error;
+            }
+            OrganizationService.validateOrganization(manufacturer);
+        }
+        return null;
+    }
+
+    private String checkAddress(Address address) {
+        if (address == null) {
+            return null;
+        }
+        return firstNonNull(checkLocation(address.getCreateTown()), checkLocation(address.getTown()));
+    }
+
+    // Локация с id — ссылка на существующую, ее поля не проверяются
+    private String checkLocation(Location location) {
+        return location == null || location.getId() != null ? null : check(location, "location", violation -> true);
+    }
+
+    // Первое нарушение аннотаций в виде "product.coordinates.x: сообщение"; порядок — по пути к полю,
+    // чтобы отчет не зависел от порядка обхода валидатора
+    private <T> String check(T value, String name, Predicate<ConstraintViolation<?>> filter) {
+        return validator.validate(value).stream()
+                .filter(filter)
+                .map(violation -> name + "." + violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static String firstNonNull(String... errors) {
+        for (String error : errors) {
+            if (error != null) {
+                return error;
+            }
+        }
+        return null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -1,7 +1,9 @@
 package com.example.system.services;
 
+import com.example.system.dto.CursorPageDto;
+import com.example.system.dto.CursorPageRequest;
+import com.example.system.dto.ChangeSetDto;
 import com.example.system.entities.Location;
-import com.example.system.entities.User;
 import com.example.system.entities.Address;
 import com.example.system.entities.Person;
 
@@ -9,44 +11,78 @@ import com.example.system.entities.Person;
 import com.example.system.exceptions.ForbiddenOperationException;
 import com.example.system.exceptions.ResourceNotFoundException;
 import com.example.system.repositories.LocationRepository;
-import com.example.system.repositories.UserRepository;
 import com.example.system.repositories.PersonRepository;
 import com.example.system.repositories.AddressRepository;
+import com.example.system.repositories.EntitySpecifications;
+import com.example.system.services.ChangeLogService.EntityType;
+import com.example.system.utils.CoalescedRead;
+import com.example.system.utils.KeysetPager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 
 @Service
 @Transactional
 public class LocationService {
 
+    private static final Map<String, Class<?>> SORTABLE = Map.of(
+            "id", Integer.class,
+            "x", Long.class,
+            "y", Integer.class,
+            "z", Double.class,
+            "createdBy", Integer.class);
     private final LocationRepository locationRepository;
-    private final UserRepository userRepository;
+    private final AuthorizationService authorizationService;
     private final AddressRepository addressRepository;
     private final PersonRepository personRepository;
+    private final ChangeLogService changeLogService;
+    private final KeysetPager keysetPager;
 
     public LocationService(LocationRepository locationRepository, 
-                       UserRepository userRepository,
+                       AuthorizationService authorizationService,
                        AddressRepository addressRepository,
-                       PersonRepository personRepository) {
+                       PersonRepository personRepository,
+                       ChangeLogService changeLogService,
+                       KeysetPager keysetPager) {
     this.locationRepository = locationRepository;
-    this.userRepository = userRepository;
+    this.authorizationService = authorizationService;
     this.addressRepository = addressRepository;
     this.personRepository = personRepository;
+    this.changeLogService = changeLogService;
+        this.keysetPager = keysetPager;
                        }
 
     public Location createLocation(Location location, Integer currentUserId) {
         location.setCreatedBy(currentUserId); // Set the creator ID
         validateLocation(location);
-        return locationRepository.save(location);
+        Location saved = locationRepository.save(location);
+        changeLogService.recordUpsert(EntityType.LOCATION, saved::getId);
+        return saved;
     }
 
+    @CoalescedRead(EntityType.LOCATION)
     public List<Location> getAllLocations() {
         return locationRepository.findAll();
     }
 
+    @CoalescedRead(EntityType.LOCATION)
+    public CursorPageDto<Location> getLocationsPage(CursorPageRequest page, Integer createdBy) {
+        Specification<Location> filter = Specification.allOf(
+                EntitySpecifications.equalTo("createdBy", createdBy));
+        return keysetPager.page(locationRepository, filter, page, SORTABLE);
+    }
+
+    @CoalescedRead(EntityType.LOCATION)
+    public ChangeSetDto<Location> getLocationChanges(long since) {
+        return changeLogService.collectChanges(EntityType.LOCATION, since,
+                locationRepository::findAll, locationRepository::findAllById);
+    }
+
+    @CoalescedRead(EntityType.LOCATION)
     public Location getLocationById(Integer id) {
         return locationRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Местоположение с ID " + id + " не найдено"));
@@ -56,12 +92,13 @@ public class LocationService {
         validateLocation(updatedLocation);
         return locationRepository.findById(id)
                 .map(existingLocation -> {
-                    if (!existingLocation.getCreatedBy().equals(currentUserId) && !isAdmin(currentUserId)) {
+                    if (!existingLocation.getCreatedBy().equals(currentUserId) && !authorizationService.isAdmin(currentUserId)) {
                         throw new ForbiddenOperationException("У вас нет прав для изменения этого местоположения.");
                     }
                     existingLocation.setX(updatedLocation.getX());
                     existingLocation.setY(updatedLocation.getY());
                     existingLocation.setZ(updatedLocation.getZ());
+                    changeLogService.recordUpsert(EntityType.LOCATION, () -> id);
                     return locationRepository.save(existingLocation);
                 })
                 .orElseThrow(() -> new ResourceNotFoundException("Местоположение с ID " + id + " не найдено"));
@@ -71,7 +108,7 @@ public class LocationService {
         Location location = locationRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Местоположение с ID " + id + " не найдено"));
 
-        if (!location.getCreatedBy().equals(currentUserId) && !isAdmin(currentUserId)) {
+        if (!location.getCreatedBy().equals(currentUserId) && !authorizationService.isAdmin(currentUserId)) {
             throw new ForbiddenOperationException("У вас нет прав для удаления этого местоположения.");
         }
 
@@ -105,16 +142,19 @@ public class LocationService {
         for (Address address : addresses) {
             address.setTown(null);
             addressRepository.save(address);
+            changeLogService.recordUpsert(EntityType.ADDRESS, address::getId);
         }
 
         // Убираем связи с людьми
         for (Person person : persons) {
             person.setLocation(null);
             personRepository.save(person);
+            changeLogService.recordUpsert(EntityType.PERSON, person::getId);
         }
 
         // Удаляем локацию
         locationRepository.deleteById(id);
+        changeLogService.recordDelete(EntityType.LOCATION, id);
     }
 
 
@@ -129,15 +169,4 @@ public class LocationService {
             throw new IllegalArgumentException("Координата Z локации не может быть null");
         }
     }
-
-    private boolean isAdmin(Integer userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("Пользователь с ID " + userId + " не найден"));
-        
-        if(user.getRole() == User.Role.ADMIN && user.isApproved()){
-            return true;
-        }
-
-        return false;
-    }
 }
@@ -1,48 +1,66 @@
 package com.example.system.services;
 
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.system.dto.CursorPageDto;
+import com.example.system.dto.CursorPageRequest;
+import com.example.system.dto.ChangeSetDto;
 import com.example.system.entities.Address;
 import com.example.system.entities.Location;
 import com.example.system.entities.Organization;
-import com.example.system.entities.User;
 import com.example.system.exceptions.ForbiddenOperationException;
 import com.example.system.exceptions.ResourceNotFoundException;
 import com.example.system.repositories.AddressRepository;
 import com.example.system.repositories.LocationRepository;
 import com.example.system.repositories.OrganizationRepository;
 import com.example.system.repositories.ProductRepository;
-import com.example.system.repositories.UserRepository;
+import com.example.system.repositories.EntitySpecifications;
+import com.example.system.services.ChangeLogService.EntityType;
+import com.example.system.utils.CoalescedRead;
+import com.example.system.utils.KeysetPager;
 
 @Service
 @Transactional
 public class OrganizationService {
 
+    private static final Map<String, Class<?>> SORTABLE = Map.of(
+            "id", Integer.class,
+            "name", String.class,
+            "employeesCount", Long.class,
+            "createdBy", Integer.class);
     private static final Logger logger = LoggerFactory.getLogger(OrganizationService.class);
     private final OrganizationRepository organizationRepository;
     private final AddressRepository addressRepository;
-    private final UserRepository userRepository;
+    private final AuthorizationService authorizationService;
     private final ProductRepository productRepository;
     private final LocationRepository locationRepository;
+    private final ChangeLogService changeLogService;
+    private final KeysetPager keysetPager;
 
     @Autowired
     public OrganizationService(
             OrganizationRepository organizationRepository,
             AddressRepository addressRepository,
-            UserRepository userRepository,
+            AuthorizationService authorizationService,
             ProductRepository productRepository,
-            LocationRepository locationRepository) {
+            LocationRepository locationRepository,
+            ChangeLogService changeLogService,
+            KeysetPager keysetPager) {
         this.organizationRepository = organizationRepository;
         this.addressRepository = addressRepository;
-        this.userRepository = userRepository;
+        this.authorizationService = authorizationService;
         this.productRepository = productRepository;
         this.locationRepository = locationRepository;
+        this.changeLogService = changeLogService;
+        this.keysetPager = keysetPager;
     }
 
     public Organization createOrganization(Organization organization, Integer currentUserId) {
@@ -70,16 +88,33 @@ public class OrganizationService {
         logger.info("ready to save org");
 
         Organization current = organizationRepository.save(organization);
+        changeLogService.recordUpsert(EntityType.ORGANIZATION, current::getId);
 
         logger.info("org saved");
 
         return current;
     }
 
+    @CoalescedRead(EntityType.ORGANIZATION)
     public List<Organization> getAllOrganizations() {
         return organizationRepository.findAll();
     }
 
+    @CoalescedRead(EntityType.ORGANIZATION)
+    public CursorPageDto<Organization> getOrganizationsPage(CursorPageRequest page, Integer createdBy, String namePrefix) {
+        Specification<Organization> filter = Specification.allOf(
+                EntitySpecifications.equalTo("createdBy", createdBy),
+                EntitySpecifications.startsWith("name", namePrefix));
+        return keysetPager.page(organizationRepository, filter, page, SORTABLE);
+    }
+
+    @CoalescedRead(EntityType.ORGANIZATION)
+    public ChangeSetDto<Organization> getOrganizationChanges(long since) {
+        return changeLogService.collectChanges(EntityType.ORGANIZATION, since,
+                organizationRepository::findAll, organizationRepository::findAllById);
+    }
+
+    @CoalescedRead(EntityType.ORGANIZATION)
     public Organization getOrganizationById(Integer id) {
         return organizationRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Организация с ID " + id + " не найдена"));
@@ -88,7 +123,7 @@ public class OrganizationService {
     public Organization updateOrganization(Integer id, Organization updatedOrganization, Integer currentUserId) {
         return organizationRepository.findById(id)
                 .map(existingOrganization -> {
-                    if (!existingOrganization.getCreatedBy().equals(currentUserId) && !isAdmin(currentUserId)) {
+                    if (!existingOrganization.getCreatedBy().equals(currentUserId) && !authorizationService.isAdmin(currentUserId)) {
                         throw new ForbiddenOperationException("У вас нет прав для изменения этой организации.");
                     }
 
@@ -115,6 +150,7 @@ public class OrganizationService {
                     existingOrganization.setFullName(updatedOrganization.getFullName());
                     existingOrganization.setRating(updatedOrganization.getRating());
 
+                    changeLogService.recordUpsert(EntityType.ORGANIZATION, () -> id);
                     return organizationRepository.save(existingOrganization);
                 })
                 .orElseThrow(() -> new ResourceNotFoundException("Организация с ID " + id + " не найдена"));
@@ -124,7 +160,7 @@ public class OrganizationService {
         Organization organization = organizationRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Организация с ID " + id + " не найдена"));
 
-        if (!organization.getCreatedBy().equals(currentUserId) && !isAdmin(currentUserId)) {
+        if (!organization.getCreatedBy().equals(currentUserId) && !authorizationService.isAdmin(currentUserId)) {
             throw new ForbiddenOperationException("У вас нет прав для удаления этой организации.");
         }
 
@@ -152,13 +188,24 @@ public class OrganizationService {
 
         // Удаляем организацию
         organizationRepository.deleteById(id);
+        changeLogService.recordDelete(EntityType.ORGANIZATION, id);
 
         // Удаляем адреса, если они больше ни с чем не связаны
         if (shouldDeleteOfficialAddress) {
             addressRepository.deleteById(officialAddress.getId());
+            recordAddressDelete(officialAddress);
         }
         if (shouldDeletePostalAddress) {
             addressRepository.deleteById(postalAddress.getId());
+            recordAddressDelete(postalAddress);
+        }
+    }
+
+    // Вместе с адресом каскадно удаляется и его город
+    private void recordAddressDelete(Address address) {
+        changeLogService.recordDelete(EntityType.ADDRESS, address.getId());
+        if (address.getTown() != null) {
+            changeLogService.recordDelete(EntityType.LOCATION, address.getTown().getId());
         }
     }
 
@@ -171,6 +218,7 @@ public class OrganizationService {
         }
     }
 
+    @CoalescedRead(EntityType.ORGANIZATION)
     public Double getAverageRating() {
         return organizationRepository.getAverageRating();
     }
@@ -184,12 +232,15 @@ public class OrganizationService {
                 Location newLocation = createAddress.getCreateTown();
                 newLocation.setCreatedBy(currentUserId);
                 newLocation = locationRepository.save(newLocation);
+                changeLogService.recordUpsert(EntityType.LOCATION, newLocation::getId);
 
                 createAddress.setTown(newLocation);
                 createAddress.setCreatedBy(currentUserId);
             }
             logger.info("Saving new address: {}", createAddress);
-            return addressRepository.save(createAddress);
+            Address savedAddress = addressRepository.save(createAddress);
+            changeLogService.recordUpsert(EntityType.ADDRESS, savedAddress::getId);
+            return savedAddress;
         } else if (linkAddressId != null) {
             logger.info("Linking to existing address with ID: {}", linkAddressId);
             return addressRepository.findById(linkAddressId)
@@ -199,7 +250,7 @@ public class OrganizationService {
         return null;
     }
 
-    private void validateOrganization(Organization organization) {
+    static void validateOrganization(Organization organization) {
         if (organization.getName() == null || organization.getName().isEmpty()) {
             throw new IllegalArgumentException("Название организации не может быть пустым");
         }
@@ -214,13 +265,6 @@ public class OrganizationService {
         }
     }
 
-    private boolean isAdmin(Integer userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("Пользователь с ID " + userId + " не найден"));
-
-        return user.getRole() == User.Role.ADMIN && user.isApproved();
-    }
-
     public void flush() {
         organizationRepository.flush();
     }
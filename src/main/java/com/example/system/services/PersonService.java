@@ -1,49 +1,89 @@
 package com.example.system.services;
 
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.system.dto.CursorPageDto;
+import com.example.system.dto.CursorPageRequest;
+import com.example.system.dto.ChangeSetDto;
+import com.example.system.entities.Color;
+import com.example.system.entities.Country;
 import com.example.system.entities.Location;
 import com.example.system.entities.Person;
-import com.example.system.entities.User;
 import com.example.system.exceptions.ForbiddenOperationException;
 import com.example.system.exceptions.ResourceNotFoundException;
 import com.example.system.repositories.LocationRepository;
 import com.example.system.repositories.PersonRepository;
-import com.example.system.repositories.UserRepository;
+import com.example.system.repositories.EntitySpecifications;
+import com.example.system.services.ChangeLogService.EntityType;
+import com.example.system.utils.CoalescedRead;
+import com.example.system.utils.KeysetPager;
 
 @Service
 @Transactional
 public class PersonService {
 
+    private static final Map<String, Class<?>> SORTABLE = Map.of(
+            "id", Integer.class,
+            "name", String.class,
+            "hairColor", Color.class,
+            "nationality", Country.class,
+            "createdBy", Integer.class);
     private static final Logger logger = LoggerFactory.getLogger(OrganizationService.class);
     private final PersonRepository personRepository;
     private final LocationRepository locationRepository;
-    private final UserRepository userRepository;
+    private final AuthorizationService authorizationService;
+    private final ChangeLogService changeLogService;
+    private final KeysetPager keysetPager;
 
     @Autowired
-    public PersonService(PersonRepository personRepository, LocationRepository locationRepository, UserRepository userRepository) {
+    public PersonService(PersonRepository personRepository, LocationRepository locationRepository, AuthorizationService authorizationService,
+            ChangeLogService changeLogService,
+            KeysetPager keysetPager) {
         this.personRepository = personRepository;
         this.locationRepository = locationRepository;
-        this.userRepository = userRepository;
+        this.authorizationService = authorizationService;
+        this.changeLogService = changeLogService;
+        this.keysetPager = keysetPager;
     }
 
     public Person createPerson(Person person, Integer currentUserId) {
         person.setCreatedBy(currentUserId); // Set creator ID
         processLocation(person, currentUserId);
         validatePerson(person);
-        return personRepository.save(person);
+        Person saved = personRepository.save(person);
+        changeLogService.recordUpsert(EntityType.PERSON, saved::getId);
+        return saved;
     }
 
+    @CoalescedRead(EntityType.PERSON)
     public List<Person> getAllPersons() {
         return personRepository.findAll();
     }
 
+    @CoalescedRead(EntityType.PERSON)
+    public CursorPageDto<Person> getPersonsPage(CursorPageRequest page, Integer createdBy, Country nationality, String namePrefix) {
+        Specification<Person> filter = Specification.allOf(
+                EntitySpecifications.equalTo("createdBy", createdBy),
+                EntitySpecifications.equalTo("nationality", nationality),
+                EntitySpecifications.startsWith("name", namePrefix));
+        return keysetPager.page(personRepository, filter, page, SORTABLE);
+    }
+
+    @CoalescedRead(EntityType.PERSON)
+    public ChangeSetDto<Person> getPersonChanges(long since) {
+        return changeLogService.collectChanges(EntityType.PERSON, since,
+                personRepository::findAll, personRepository::findAllById);
+    }
+
+    @CoalescedRead(EntityType.PERSON)
     public Person getPersonById(Integer id) {
         return personRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Человек с ID " + id + " не найден"));
@@ -54,7 +94,7 @@ public class PersonService {
         validatePerson(updatedPerson);
         return personRepository.findById(id)
                 .map(person -> {
-                    if (!person.getCreatedBy().equals(currentUserId) && !isAdmin(currentUserId)) {
+                    if (!person.getCreatedBy().equals(currentUserId) && !authorizationService.isAdmin(currentUserId)) {
                         throw new ForbiddenOperationException("У вас нет прав для изменения данных этого человека.");
                     }
                     person.setName(updatedPerson.getName());
@@ -63,6 +103,7 @@ public class PersonService {
                     person.setLocation(updatedPerson.getLocation());
                     person.setBirthday(updatedPerson.getBirthday());
                     person.setNationality(updatedPerson.getNationality());
+                    changeLogService.recordUpsert(EntityType.PERSON, () -> id);
                     return personRepository.save(person);
                 })
                 .orElseThrow(() -> new ResourceNotFoundException("Человек с ID " + id + " не найден"));
@@ -72,12 +113,13 @@ public class PersonService {
         Person person = personRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Человек с ID " + id + " не найден"));
 
-        if (!person.getCreatedBy().equals(currentUserId) && !isAdmin(currentUserId)) {
+        if (!person.getCreatedBy().equals(currentUserId) && !authorizationService.isAdmin(currentUserId)) {
             throw new ForbiddenOperationException("У вас нет прав для удаления этого человека.");
         }
 
         // Удаляем человека
         personRepository.deleteById(id);
+        changeLogService.recordDelete(EntityType.PERSON, id);
     }
 
     private Location processLocation(Person person, Integer currentUserId) {
@@ -92,6 +134,7 @@ public class PersonService {
             logger.info("prepared for saving");
 
             locationRepository.save(newLocation);
+            changeLogService.recordUpsert(EntityType.LOCATION, newLocation::getId);
 
             logger.info("saved");
 
@@ -107,32 +150,26 @@ public class PersonService {
         return null;
     }
 
-    private void validatePerson(Person person) {
+    void validatePerson(Person person) {
+        validatePersonFields(person);
+        if (person.getLocation() == null) {
+            throw new IllegalArgumentException("Местоположение человека не может быть null");
+        }
+    }
+
+    // Проверки без местоположения: при импорте оно еще не разрешено из createLocation или linkLocationId
+    static void validatePersonFields(Person person) {
         if (person.getName() == null || person.getName().isEmpty()) {
             throw new IllegalArgumentException("Имя человека не может быть пустым");
         }
         if (person.getHairColor() == null) {
             throw new IllegalArgumentException("Цвет волос человека не может быть null");
         }
-        if (person.getLocation() == null) {
-            throw new IllegalArgumentException("Местоположение человека не может быть null");
-        }
         if (person.getNationality() == null) {
             throw new IllegalArgumentException("Национальность человека не может быть null");
         }
     }
 
-    private boolean isAdmin(Integer userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("Пользователь с ID " + userId + " не найден"));
-
-        if (user.getRole() == User.Role.ADMIN && user.isApproved()) {
-            return true;
-        }
-
-        return false;
-    }
-
     public void flush() {
         personRepository.flush();
     }
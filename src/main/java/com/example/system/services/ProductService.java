@@ -1,13 +1,19 @@
 package com.example.system.services;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.system.dto.CursorPageDto;
+import com.example.system.dto.CursorPageRequest;
+import com.example.system.dto.ChangeSetDto;
 import com.example.system.entities.Address;
 import com.example.system.entities.Organization;
 import com.example.system.entities.Person;
@@ -17,38 +23,57 @@ import com.example.system.entities.User;
 import com.example.system.exceptions.ForbiddenOperationException;
 import com.example.system.exceptions.ResourceNotFoundException;
 import com.example.system.repositories.AddressRepository;
+import com.example.system.repositories.EntitySpecifications;
 import com.example.system.repositories.LocationRepository;
 import com.example.system.repositories.OrganizationRepository;
 import com.example.system.repositories.PersonRepository;
 import com.example.system.repositories.ProductRepository;
-import com.example.system.repositories.UserRepository;
+import com.example.system.services.ChangeLogService.EntityType;
+import com.example.system.utils.CoalescedRead;
+import com.example.system.utils.KeysetPager;
+
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
 
 @Service
 @Transactional
 public class ProductService {
 
     private static final Logger logger = LoggerFactory.getLogger(OrganizationService.class);
+    private static final Map<String, Class<?>> SORTABLE = Map.of(
+            "id", Integer.class,
+            "name", String.class,
+            "price", Long.class,
+            "rating", Double.class,
+            "createdBy", Integer.class);
     private final ProductRepository productRepository;
     private final OrganizationRepository organizationRepository;
     private final PersonRepository personRepository;
-    private final UserRepository userRepository;
+    private final AuthorizationService authorizationService;
     private final LocationRepository locationRepository;
     private final AddressRepository addressRepository;
+    private final ChangeLogService changeLogService;
+    private final KeysetPager keysetPager;
 
     @Autowired
     public ProductService(ProductRepository productRepository,
             OrganizationRepository organizationRepository,
             PersonRepository personRepository,
-            UserRepository userRepository,
+            AuthorizationService authorizationService,
             LocationRepository locationRepository,
-            AddressRepository addressRepository
+            AddressRepository addressRepository,
+            ChangeLogService changeLogService,
+            KeysetPager keysetPager
     ) {
         this.productRepository = productRepository;
         this.organizationRepository = organizationRepository;
         this.personRepository = personRepository;
-        this.userRepository = userRepository;
+        this.authorizationService = authorizationService;
         this.locationRepository = locationRepository;
         this.addressRepository = addressRepository;
+        this.changeLogService = changeLogService;
+        this.keysetPager = keysetPager;
     }
 
     public Product createProduct(Product product, Integer currentUserId) {
@@ -56,17 +81,71 @@ public class ProductService {
         product.setCreatedBy(currentUserId); // Set creator ID
         logger.info("setupped product created by");
         // validateProduct(product);
+        boolean newManufacturer = product.getManufacturer() != null && product.getManufacturer().getId() == null;
+        boolean newOwner = product.getOwner() != null && product.getOwner().getId() == null;
         logger.info("product saving");
         Product current = productRepository.save(product);
         logger.info("product saved");
 
+        changeLogService.recordUpsert(EntityType.PRODUCT, current::getId);
+        // Новые владелец и производитель сохраняются каскадом вместе с продуктом
+        if (newManufacturer) {
+            changeLogService.recordUpsert(EntityType.ORGANIZATION, current.getManufacturer()::getId);
+        }
+        if (newOwner) {
+            changeLogService.recordUpsert(EntityType.PERSON, current.getOwner()::getId);
+        }
+
         return current;
     }
 
+    @CoalescedRead(EntityType.PRODUCT)
     public List<Product> getAllProducts() {
         return productRepository.findAll();
     }
 
+    @CoalescedRead(EntityType.PRODUCT)
+    public CursorPageDto<Product> getProductsPage(CursorPageRequest page, Integer createdBy,
+            UnitOfMeasure unitOfMeasure, Long minPrice, Long maxPrice, String namePrefix) {
+        Specification<Product> filter = Specification.allOf(
+                EntitySpecifications.equalTo("createdBy", createdBy),
+                EntitySpecifications.equalTo("unitOfMeasure", unitOfMeasure),
+                EntitySpecifications.atLeast("price", minPrice),
+                EntitySpecifications.atMost("price", maxPrice),
+                EntitySpecifications.startsWith("name", namePrefix));
+        return keysetPager.page(productRepository, filter, page, SORTABLE);
+    }
+
+    // Продукты, связанные с пользователем через user_products, без загрузки самого пользователя
+    public CursorPageDto<Product> getProductsOwnedByUser(Integer userId, CursorPageRequest page) {
+        Specification<Product> owned = (root, query, cb) -> {
+            Subquery<Integer> productIds = query.subquery(Integer.class);
+            Root<User> user = productIds.from(User.class);
+            Join<User, Product> product = user.join("products");
+            productIds.select(product.get("id")).where(cb.equal(user.get("id"), userId));
+            return root.get("id").in(productIds);
+        };
+        return keysetPager.page(productRepository, owned, page, SORTABLE);
+    }
+
+    @CoalescedRead(EntityType.PRODUCT)
+    public ChangeSetDto<Product> getProductChanges(long since) {
+        return changeLogService.collectChanges(EntityType.PRODUCT, since,
+                productRepository::findAll, productRepository::findAllById, this::findProductIdsRendering);
+    }
+
+    // Продукты, в JSON которых входят измененные организации, люди, адреса или локации
+    private Collection<Integer> findProductIdsRendering(EntityType type, Collection<Integer> ids) {
+        return switch (type) {
+            case ORGANIZATION -> productRepository.findIdsByManufacturerIdIn(ids);
+            case PERSON -> productRepository.findIdsByOwnerIdIn(ids);
+            case ADDRESS -> productRepository.findIdsByAddressIdIn(ids);
+            case LOCATION -> productRepository.findIdsByLocationIdIn(ids);
+            default -> List.of();
+        };
+    }
+
+    @CoalescedRead(EntityType.PRODUCT)
     public Product getProductById(Integer id) {
         return productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Продукт с ID " + id + " не найден"));
@@ -76,7 +155,7 @@ public class ProductService {
         validateProduct(updatedProduct);
         return productRepository.findById(id)
                 .map(product -> {
-                    if (!product.getCreatedBy().equals(currentUserId) && !isAdmin(currentUserId)) {
+                    if (!product.getCreatedBy().equals(currentUserId) && !authorizationService.isAdmin(currentUserId)) {
                         throw new ForbiddenOperationException("У вас нет прав для изменения этого продукта.");
                     }
                     product.setName(updatedProduct.getName());
@@ -88,7 +167,17 @@ public class ProductService {
                     product.setRating(updatedProduct.getRating());
                     product.setPartNumber(updatedProduct.getPartNumber());
                     product.setOwner(updatedProduct.getOwner());
-                    return productRepository.save(product);
+                    Product saved = productRepository.save(product);
+                    changeLogService.recordUpsert(EntityType.PRODUCT, () -> id);
+                    // Владелец и производитель сохраняются каскадом (MERGE): новые создаются, присланные
+                    // существующие перезаписываются
+                    if (saved.getManufacturer() != null) {
+                        changeLogService.recordUpsert(EntityType.ORGANIZATION, saved.getManufacturer()::getId);
+                    }
+                    if (saved.getOwner() != null) {
+                        changeLogService.recordUpsert(EntityType.PERSON, saved.getOwner()::getId);
+                    }
+                    return saved;
                 })
                 .orElseThrow(() -> new ResourceNotFoundException("Продукт с ID " + id + " не найден"));
     }
@@ -97,32 +186,37 @@ public class ProductService {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Продукт с ID " + id + " не найден"));
 
-        if (!product.getCreatedBy().equals(currentUserId) && !isAdmin(currentUserId)) {
+        if (!product.getCreatedBy().equals(currentUserId) && !authorizationService.isAdmin(currentUserId)) {
             throw new ForbiddenOperationException("У вас нет прав для удаления этого продукта.");
         }
 
         productRepository.deleteById(id); // JPA автоматически обработает каскадное удаление
+        changeLogService.recordDelete(EntityType.PRODUCT, id);
     }
 
     // Special operations:
+    @CoalescedRead(EntityType.PRODUCT)
     public long countByPartNumber(String partNumber) {
         return productRepository.countByPartNumber(partNumber);
     }
 
+    @CoalescedRead(EntityType.PRODUCT)
     public List<Product> findByPartNumberStartingWith(String partNumberPrefix) {
         return productRepository.findByPartNumberStartingWith(partNumberPrefix);
     }
 
+    @CoalescedRead(EntityType.PRODUCT)
     public List<Product> findByPriceBetween(long minPrice, long maxPrice) {
         return productRepository.findByPriceBetween(minPrice, maxPrice);
     }
 
+    @CoalescedRead(EntityType.PRODUCT)
     public List<Product> findByUnitOfMeasure(UnitOfMeasure unitOfMeasure) {
         return productRepository.findByUnitOfMeasure(unitOfMeasure);
     }
 
     // Остальные методы остаются без изменений
-    private void validateProduct(Product product) {
+    static void validateProduct(Product product) {
         if (product.getName() == null || product.getName().isEmpty()) {
             throw new IllegalArgumentException("Название продукта не может быть пустым");
         }
@@ -149,10 +243,4 @@ public class ProductService {
         }
     }
 
-    private boolean isAdmin(Integer userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("Пользователь с ID " + userId + " не найден"));
-
-        return user.getRole() == User.Role.ADMIN && user.isApproved();
-    }
 }
@@ -0,0 +1,108 @@
+package com.example.system.services;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.system.dto.ChangeSetDto;
+import com.example.system.services.ChangeLogService.EntityType;
+
+import jakarta.annotation.PreDestroy;
+
+// Собирает все шесть коллекций одним ответом. Каждая коллекция читается в своем потоке,
+// а значит в своей транзакции и на своем соединении, поэтому запросы к базе идут параллельно
+@Service
+public class SnapshotService {
+
+    private static final int FETCH_THREADS = 12;
+    private static final int FETCH_QUEUE = 120;
+
+    private final ProductService productService;
+    private final OrganizationService organizationService;
+    private final PersonService personService;
+    private final AddressService addressService;
+    private final LocationService locationService;
+    private final ImportHistoryService importHistoryService;
+    private final ChangeLogService changeLogService;
+    private final ThreadPoolExecutor executor;
+
+    @Autowired
+    public SnapshotService(ProductService productService,
+            OrganizationService organizationService,
+            PersonService personService,
+            AddressService addressService,
+            LocationService locationService,
+            ImportHistoryService importHistoryService,
+            ChangeLogService changeLogService) {
+        this.productService = productService;
+        this.organizationService = organizationService;
+        this.personService = personService;
+        this.addressService = addressService;
+        this.locationService = locationService;
+        this.importHistoryService = importHistoryService;
+        this.changeLogService = changeLogService;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        // При переполнении очереди вызывающий поток читает сам — естественное ограничение нагрузки
+        this.executor = new ThreadPoolExecutor(FETCH_THREADS, FETCH_THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(FETCH_QUEUE),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "snapshot-fetch-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    // since — версия из прошлого снимка по каждой коллекции; 0 означает полную выгрузку
+    public Map<String, ChangeSetDto<?>> getSnapshot(long productsSince, long organizationsSince, long personsSince,
+            long addressesSince, long locationsSince, long importHistorySince) {
+        Map<String, CompletableFuture<ChangeSetDto<?>>> futures = new LinkedHashMap<>();
+        futures.put("products", fetch(() -> productService.getProductChanges(productsSince)));
+        futures.put("organizations", fetch(() -> organizationService.getOrganizationChanges(organizationsSince)));
+        futures.put("persons", fetch(() -> personService.getPersonChanges(personsSince)));
+        futures.put("addresses", fetch(() -> addressService.getAddressChanges(addressesSince)));
+        futures.put("locations", fetch(() -> locationService.getLocationChanges(locationsSince)));
+        futures.put("importHistory", fetch(() -> importHistoryService.getImportHistoryChanges(importHistorySince)));
+
+        Map<String, ChangeSetDto<?>> snapshot = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, CompletableFuture<ChangeSetDto<?>>> entry : futures.entrySet()) {
+                snapshot.put(entry.getKey(), entry.getValue().join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return snapshot;
+    }
+
+    // Любой коммит увеличивает общий счетчик версий, поэтому максимум по таблицам однозначно описывает снимок
+    public String getSnapshotTag() {
+        long version = 0;
+        for (EntityType type : EntityType.values()) {
+            version = Math.max(version, changeLogService.currentVersion(type));
+        }
+        return "snapshot-" + version;
+    }
+
+    private CompletableFuture<ChangeSetDto<?>> fetch(Supplier<ChangeSetDto<?>> loader) {
+        return CompletableFuture.supplyAsync(loader, executor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -1,6 +1,6 @@
 package com.example.system.services;
 
-import com.example.system.entities.User;
+import com.example.system.dto.UserSummaryDto;
 import com.example.system.implementations.UserDetailsImpl;
 import com.example.system.repositories.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,7 +22,8 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     @Override
     @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
+        // Только колонки users: продукты пользователя для входа и проверки токена не нужны
+        UserSummaryDto user = userRepository.findSummaryByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + username));
         return UserDetailsImpl.build(user);
     }
@@ -1,9 +1,14 @@
 package com.example.system.services;
 
+import com.example.system.dto.CursorPageDto;
+import com.example.system.dto.CursorPageRequest;
+import com.example.system.dto.UserSummaryDto;
 import com.example.system.entities.Product;
 import com.example.system.entities.User;
 import com.example.system.exceptions.ResourceNotFoundException;
 import com.example.system.repositories.UserRepository;
+import com.example.system.services.ChangeLogService.EntityType;
+import com.example.system.utils.PrincipalCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -21,16 +26,26 @@ public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
+    private final PrincipalCache principalCache;
+    private final AuthorizationService authorizationService;
+    private final ProductService productService;
+    private final ChangeLogService changeLogService;
 
     @Autowired
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, AuthenticationManager authenticationManager) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, AuthenticationManager authenticationManager,
+            PrincipalCache principalCache, AuthorizationService authorizationService, ProductService productService,
+            ChangeLogService changeLogService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.authenticationManager = authenticationManager;
+        this.principalCache = principalCache;
+        this.authorizationService = authorizationService;
+        this.productService = productService;
+        this.changeLogService = changeLogService;
     }
 
     public User createUser(User user) {
-        if (userRepository.findByUsername(user.getUsername()).isPresent()) {
+        if (userRepository.findSummaryByUsername(user.getUsername()).isPresent()) {
             throw new IllegalArgumentException("Пользователь с таким именем уже существует");
         }
         user.setPassword(passwordEncoder.encode(user.getPassword()));
@@ -42,8 +57,8 @@ public class UserService {
         return userRepository.save(user);
     }
 
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    public List<UserSummaryDto> getAllUsers() {
+        return userRepository.findAllSummaries();
     }
 
     public User getUserById(Integer id) {
@@ -57,13 +72,22 @@ public class UserService {
                     user.setUsername(updatedUser.getUsername());
                     user.setPassword(passwordEncoder.encode(updatedUser.getPassword()));
                     user.setRole(updatedUser.getRole());
+                    principalCache.invalidateUser(id);
+                    authorizationService.invalidateUser(id);
                     return userRepository.save(user);
                 })
                 .orElseThrow(() -> new ResourceNotFoundException("Пользователь с ID " + id + " не найден"));
     }
 
     public void deleteUser(Integer id) {
+        principalCache.invalidateUser(id);
+        authorizationService.invalidateUser(id);
+        List<Integer> productIds = userRepository.findProductIdsByUserId(id);
         userRepository.deleteById(id);
+        // Каскадно удаленные продукты тоже попадают в журнал, иначе клиенты продолжат их показывать
+        for (Integer productId : productIds) {
+            changeLogService.recordDelete(EntityType.PRODUCT, productId);
+        }
     }
 
     public User findByUsername(String username) {
@@ -81,20 +105,19 @@ public class UserService {
     public User approveUser(Integer id, boolean approve) {
         User user = getUserById(id);
         user.setApproved(approve);
+        principalCache.invalidateUser(id);
+        authorizationService.invalidateUser(id);
         return userRepository.save(user);
     }
 
-    public List<Product> findProductsByUserId(Integer userId) {
-        return userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId))
-                .getProducts()
-                .stream()
-                .toList();
+    public CursorPageDto<Product> findProductsByUserId(Integer userId, CursorPageRequest page) {
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User not found with id: " + userId);
+        }
+        return productService.getProductsOwnedByUser(userId, page);
     }
 
-    public List<User> getPendingAdmins() {
-        return userRepository.findAll().stream()
-                .filter(user -> user.getRole() == User.Role.ADMIN && !user.isApproved())
-                .toList();
+    public List<UserSummaryDto> getPendingAdmins() {
+        return userRepository.findSummariesByRoleAndApproved(User.Role.ADMIN, false);
     }
 }
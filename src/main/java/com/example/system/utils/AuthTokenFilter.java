@@ -7,6 +7,7 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+import com.example.system.implementations.UserDetailsImpl;
 import com.example.system.services.UserDetailsServiceImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,6 +19,8 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.util.StringUtils;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 
+import io.jsonwebtoken.Claims;
+
 public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired
     private JwtUtils jwtUtils;
@@ -25,6 +28,9 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
+    @Autowired
+    private PrincipalCache principalCache;
+
     private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
     @Override
@@ -32,10 +38,15 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
+            // Подпись проверяется один раз, имя и время выдачи берутся из тех же claims
+            Claims claims = jwt == null ? null : jwtUtils.parseVerifiedClaims(jwt);
+            if (claims != null) {
+                String username = claims.getSubject();
+                long issuedAt = claims.getIssuedAt() == null ? 0 : claims.getIssuedAt().getTime();
 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                // В базу идем только при первом запросе с этим токеном или после изменения пользователя
+                UserDetails userDetails = principalCache.get(username, issuedAt,
+                        () -> (UserDetailsImpl) userDetailsService.loadUserByUsername(username));
                 UsernamePasswordAuthenticationToken authentication =
                     new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
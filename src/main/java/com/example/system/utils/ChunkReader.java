@@ -0,0 +1,13 @@
+package com.example.system.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Потоковый разбор тела импорта: элементы отдаются пачками по мере чтения, в памяти только текущая пачка
+public interface ChunkReader<T> {
+
+    // Возвращает количество прочитанных элементов
+    long read(InputStream body, Consumer<List<T>> chunkConsumer) throws IOException;
+}
@@ -0,0 +1,16 @@
+package com.example.system.utils;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.example.system.services.ChangeLogService.EntityType;
+
+// Одинаковые одновременные вызовы помеченного метода выполняются одним запросом к базе.
+// value — таблица, по версии которой новые вызовы после коммита не присоединяются к старому запросу
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CoalescedRead {
+    EntityType value();
+}
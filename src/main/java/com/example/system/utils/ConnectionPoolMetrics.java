@@ -0,0 +1,75 @@
+package com.example.system.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+// Счетчики пула соединений: сколько занято/свободно/ждут сейчас и сколько в среднем ждали выдачи соединения.
+// Hikari сам вызывает трекер при каждой выдаче и возврате соединения
+public class ConnectionPoolMetrics implements MetricsTrackerFactory {
+
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong acquireNanos = new AtomicLong();
+    private final LongAccumulator maxAcquireNanos = new LongAccumulator(Math::max, 0);
+    private final AtomicLong usageMillis = new AtomicLong();
+    private final LongAccumulator maxUsageMillis = new LongAccumulator(Math::max, 0);
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private volatile PoolStats poolStats;
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                created.incrementAndGet();
+            }
+
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquired.incrementAndGet();
+                acquireNanos.addAndGet(elapsedAcquiredNanos);
+                maxAcquireNanos.accumulate(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageMillis.addAndGet(elapsedBorrowedMillis);
+                maxUsageMillis.accumulate(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.incrementAndGet();
+            }
+        };
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        PoolStats stats = poolStats;
+        if (stats != null) {
+            metrics.put("active", stats.getActiveConnections());
+            metrics.put("idle", stats.getIdleConnections());
+            metrics.put("total", stats.getTotalConnections());
+            metrics.put("pending", stats.getPendingThreads());
+            metrics.put("max", stats.getMaxConnections());
+        }
+        long count = acquired.get();
+        metrics.put("acquired", count);
+        metrics.put("avgWaitMs", count == 0 ? 0.0 : acquireNanos.get() / (double) count / TimeUnit.MILLISECONDS.toNanos(1));
+        metrics.put("maxWaitMs", maxAcquireNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1));
+        metrics.put("avgUsageMs", count == 0 ? 0.0 : usageMillis.get() / (double) count);
+        metrics.put("maxUsageMs", maxUsageMillis.get());
+        metrics.put("timeouts", timeouts.get());
+        metrics.put("connectionsCreated", created.get());
+        return metrics;
+    }
+}
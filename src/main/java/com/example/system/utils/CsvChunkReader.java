@@ -0,0 +1,150 @@
+package com.example.system.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+// CSV (RFC 4180) с заголовком. Каждая колонка — путь к полю через точку: "price", "owner.name",
+// "owner.createLocation.x", "manufacturer.linkOfficialAddressId". columnMapping переименовывает
+// колонки выгрузки в такие пути. Запись собирается в JSON-дерево и превращается в объект тем же
+// ObjectMapper, что и JSON-импорт, поэтому преобразования типов и перечислений совпадают.
+// Пустая ячейка — отсутствующее поле. Записи читаются по мере поступления тела
+public class CsvChunkReader<T> implements ChunkReader<T> {
+
+    private static final int BUFFER_CHARS = 1 << 16;
+
+    private final ObjectMapper objectMapper;
+    private final Class<T> type;
+    private final int chunkSize;
+    private final Map<String, String> columnMapping;
+    private final char delimiter;
+
+    public CsvChunkReader(ObjectMapper objectMapper, Class<T> type, int chunkSize, Map<String, String> columnMapping,
+            char delimiter) {
+        this.objectMapper = objectMapper;
+        this.type = type;
+        this.chunkSize = chunkSize;
+        this.columnMapping = columnMapping;
+        this.delimiter = delimiter;
+    }
+
+    @Override
+    public long read(InputStream body, Consumer<List<T>> chunkConsumer) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8), BUFFER_CHARS);
+        skipBom(reader);
+        List<String> header = readRecord(reader);
+        if (header == null) {
+            return 0;
+        }
+        String[][] paths = new String[header.size()][];
+        for (int i = 0; i < header.size(); i++) {
+            String column = header.get(i).trim();
+            paths[i] = columnMapping.getOrDefault(column, column).split("\\.");
+        }
+
+        long count = 0;
+        List<T> chunk = new ArrayList<>(chunkSize);
+        List<String> record;
+        while ((record = readRecord(reader)) != null) {
+            if (record.size() == 1 && record.get(0).isEmpty()) {
+                continue; // пустая строка
+            }
+            if (record.size() != paths.length) {
+                throw new IllegalArgumentException("Запись CSV " + (count + 1) + ": ожидается " + paths.length
+                        + " колонок, получено " + record.size());
+            }
+            chunk.add(objectMapper.treeToValue(toTree(paths, record), type));
+            count++;
+            if (chunk.size() == chunkSize) {
+                chunkConsumer.accept(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunkConsumer.accept(chunk);
+        }
+        return count;
+    }
+
+    private JsonNode toTree(String[][] paths, List<String> record) {
+        ObjectNode root = objectMapper.createObjectNode();
+        for (int i = 0; i < paths.length; i++) {
+            String value = record.get(i);
+            if (value.isEmpty()) {
+                continue;
+            }
+            ObjectNode node = root;
+            String[] path = paths[i];
+            for (int j = 0; j < path.length - 1; j++) {
+                JsonNode child = node.get(path[j]);
+                node = child instanceof ObjectNode objectNode ? objectNode : node.putObject(path[j]);
+            }
+            node.put(path[path.length - 1], value);
+        }
+        return root;
+    }
+
+    // Одна запись; null в конце потока. Поля в кавычках могут содержать разделитель, перевод строки и ""
+    private List<String> readRecord(BufferedReader reader) throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IllegalArgumentException("Незакрытые кавычки в CSV");
+                }
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        reader.reset();
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+    }
+
+    private static void skipBom(BufferedReader reader) throws IOException {
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+    }
+}
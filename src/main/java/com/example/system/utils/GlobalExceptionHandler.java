@@ -7,6 +7,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 import com.example.system.exceptions.ForbiddenOperationException;
+import com.example.system.exceptions.ImportInProgressException;
 import com.example.system.exceptions.ResourceNotFoundException;
 
 import java.util.Map;
@@ -50,4 +51,13 @@ public class GlobalExceptionHandler {
             "message", ex.getMessage()
         ));
     }
+
+    @ExceptionHandler(ImportInProgressException.class)
+    public ResponseEntity<Object> handleImportInProgress(ImportInProgressException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+            "status", HttpStatus.CONFLICT.value(),
+            "error", "Conflict",
+            "message", ex.getMessage()
+        ));
+    }
 }
@@ -0,0 +1,216 @@
+package com.example.system.utils;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Допуск импортов к базе: не больше maxConcurrent одновременно и maxPerUser на пользователя, остальные ждут
+// в очереди. Очередь справедливая — слоты раздаются пользователям по кругу, поэтому пачка задач одного
+// пользователя не задерживает остальных. maxConcurrent меньше пула соединений: остаток пула всегда свободен
+// для обычных CRUD-запросов
+public class ImportScheduler {
+
+    private final int maxConcurrent;
+    private final int maxPerUser;
+    private final int queueCapacity;
+    private final long admissionTimeoutMs;
+    // Пользователи с ожидающими импортами в порядке обхода; обслуженный уходит в конец
+    private final Map<Integer, Deque<Ticket>> waiting = new LinkedHashMap<>();
+    private final Map<Integer, Integer> activeByUser = new HashMap<>();
+    private final ThreadPoolExecutor workers;
+    private int queued;
+    private int active;
+    private boolean shutdown;
+
+    private long granted;
+    private long rejected;
+    private long timeouts;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+
+    public ImportScheduler(int maxConcurrent, int maxPerUser, int queueCapacity, long admissionTimeoutMs) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("Число одновременных импортов должно быть не меньше 1: " + maxConcurrent);
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxPerUser = Math.max(maxPerUser, 1);
+        this.queueCapacity = queueCapacity;
+        this.admissionTimeoutMs = admissionTimeoutMs;
+        // Задача попадает в пул только после получения слота, так что своей очереди у пула фактически нет
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(this.maxConcurrent, this.maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "import-job-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    // Фоновая задача: выполнится на пуле импорта, когда до пользователя дойдет очередь
+    public synchronized Ticket submit(Integer userId, Runnable task) {
+        Ticket ticket = enqueue(userId, task);
+        dispatch();
+        return ticket;
+    }
+
+    // Синхронный импорт: поток запроса ждет слот не дольше admissionTimeoutMs. Слот освобождается close()
+    public synchronized Ticket acquire(Integer userId) throws InterruptedException {
+        Ticket ticket = enqueue(userId, null);
+        dispatch();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(admissionTimeoutMs);
+        try {
+            while (!ticket.granted) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    remove(ticket);
+                    timeouts++;
+                    throw new RejectedExecutionException("Нет свободного слота для импорта");
+                }
+                wait(remaining);
+            }
+        } catch (InterruptedException e) {
+            if (ticket.granted) {
+                release(ticket);
+            } else {
+                remove(ticket);
+            }
+            throw e;
+        }
+        return ticket;
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("active", active);
+        metrics.put("queued", queued);
+        metrics.put("waitingUsers", waiting.size());
+        metrics.put("maxConcurrent", maxConcurrent);
+        metrics.put("maxPerUser", maxPerUser);
+        metrics.put("queueCapacity", queueCapacity);
+        metrics.put("granted", granted);
+        metrics.put("rejected", rejected);
+        metrics.put("timeouts", timeouts);
+        metrics.put("avgWaitMs", granted == 0 ? 0.0 : totalWaitNanos / (double) granted / TimeUnit.MILLISECONDS.toNanos(1));
+        metrics.put("maxWaitMs", maxWaitNanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+        return metrics;
+    }
+
+    public synchronized void shutdown() {
+        shutdown = true;
+        workers.shutdownNow();
+        notifyAll();
+    }
+
+    private Ticket enqueue(Integer userId, Runnable task) {
+        if (shutdown || queued >= queueCapacity) {
+            rejected++;
+            throw new RejectedExecutionException("Очередь импорта переполнена");
+        }
+        Ticket ticket = new Ticket(userId, task);
+        waiting.computeIfAbsent(userId, id -> new ArrayDeque<>()).addLast(ticket);
+        queued++;
+        return ticket;
+    }
+
+    private void remove(Ticket ticket) {
+        Deque<Ticket> tickets = waiting.get(ticket.userId);
+        if (tickets != null && tickets.remove(ticket)) {
+            queued--;
+            if (tickets.isEmpty()) {
+                waiting.remove(ticket.userId);
+            }
+        }
+    }
+
+    // Раздает свободные слоты: первый по кругу пользователь, не упершийся в свой лимит, получает слот
+    // для самого старого своего импорта и переходит в конец круга
+    private void dispatch() {
+        while (!shutdown && active < maxConcurrent) {
+            Ticket next = null;
+            for (Iterator<Map.Entry<Integer, Deque<Ticket>>> it = waiting.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<Integer, Deque<Ticket>> entry = it.next();
+                if (activeByUser.getOrDefault(entry.getKey(), 0) < maxPerUser) {
+                    next = entry.getValue().pollFirst();
+                    it.remove();
+                    if (!entry.getValue().isEmpty()) {
+                        waiting.put(entry.getKey(), entry.getValue());
+                    }
+                    break;
+                }
+            }
+            if (next == null) {
+                return;
+            }
+            grant(next);
+        }
+    }
+
+    private void grant(Ticket ticket) {
+        queued--;
+        active++;
+        activeByUser.merge(ticket.userId, 1, Integer::sum);
+        ticket.granted = true;
+        long waited = System.nanoTime() - ticket.enqueuedAt;
+        granted++;
+        totalWaitNanos += waited;
+        maxWaitNanos = Math.max(maxWaitNanos, waited);
+        if (ticket.task == null) {
+            notifyAll();
+            return;
+        }
+        workers.execute(() -> {
+            try {
+                ticket.task.run();
+            } finally {
+                release(ticket);
+            }
+        });
+    }
+
+    private synchronized void release(Ticket ticket) {
+        if (!ticket.granted || ticket.released) {
+            return;
+        }
+        ticket.released = true;
+        active--;
+        activeByUser.computeIfPresent(ticket.userId, (id, count) -> count > 1 ? count - 1 : null);
+        dispatch();
+    }
+
+    public final class Ticket implements AutoCloseable {
+        private final Integer userId;
+        private final Runnable task;
+        private final long enqueuedAt = System.nanoTime();
+        private boolean granted;
+        private boolean released;
+
+        private Ticket(Integer userId, Runnable task) {
+            this.userId = userId;
+            this.task = task;
+        }
+
+        // Снимает импорт, еще ждущий в очереди; false — он уже запущен
+        public boolean cancel() {
+            synchronized (ImportScheduler.this) {
+                if (granted) {
+                    return false;
+                }
+                remove(this);
+                return true;
+            }
+        }
+
+        @Override
+        public void close() {
+            release(this);
+        }
+    }
+}
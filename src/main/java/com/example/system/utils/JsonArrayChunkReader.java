@@ -0,0 +1,53 @@
+package com.example.system.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Читает JSON-массив из потока по одному элементу и отдает их пачками фиксированного размера.
+// В памяти одновременно только текущая пачка; пока она обрабатывается, тело дальше не читается,
+// и клиент упирается в TCP-окно — это и есть обратное давление
+public class JsonArrayChunkReader<T> implements ChunkReader<T> {
+
+    private final ObjectMapper objectMapper;
+    private final Class<T> type;
+    private final int chunkSize;
+
+    public JsonArrayChunkReader(ObjectMapper objectMapper, Class<T> type, int chunkSize) {
+        this.objectMapper = objectMapper;
+        this.type = type;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public long read(InputStream body, Consumer<List<T>> chunkConsumer) throws IOException {
+        long count = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Ожидается JSON-массив");
+            }
+            List<T> chunk = new ArrayList<>(chunkSize);
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (parser.currentToken() == null) {
+                    throw new IllegalArgumentException("JSON-массив оборван");
+                }
+                chunk.add(objectMapper.readValue(parser, type));
+                count++;
+                if (chunk.size() == chunkSize) {
+                    chunkConsumer.accept(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                chunkConsumer.accept(chunk);
+            }
+        }
+        return count;
+    }
+}
@@ -1,6 +1,11 @@
 package com.example.system.utils;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 import javax.crypto.SecretKey;
 
@@ -11,7 +16,9 @@ import org.springframework.stereotype.Component;
 
 import com.example.system.implementations.UserDetailsImpl;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
@@ -24,7 +31,15 @@ public class JwtUtils {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
+    private static final int VERIFIED_TOKEN_CACHE_SIZE = 10_000;
+    private static final long VERIFIED_TOKEN_TTL_MS = TimeUnit.MINUTES.toMillis(10);
+
     private final SecretKey secretKey = Keys.secretKeyFor(SignatureAlgorithm.HS512);
+    // Парсер неизменяем и потокобезопасен, поэтому создается один раз
+    private final JwtParser parser = Jwts.parserBuilder().setSigningKey(secretKey).build();
+    // Храним хэш, а не сам токен, чтобы в памяти не лежали действующие учетные данные
+    private final ExpiringLruCache<String, Claims> verifiedTokens =
+            new ExpiringLruCache<>(VERIFIED_TOKEN_CACHE_SIZE, VERIFIED_TOKEN_TTL_MS);
 
     public String generateJwtToken(Authentication authentication) {
         UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
@@ -37,15 +52,31 @@ public class JwtUtils {
                 .compact();
     }
 
-    public String getUserNameFromJwtToken(String token) {
-        return Jwts.parserBuilder().setSigningKey(secretKey).build()
-                .parseClaimsJws(token).getBody().getSubject();
-    }
+    // Единственная точка разбора токена: проверяет подпись и срок и возвращает claims, либо null для
+    // невалидного токена. Уже проверенные токены берутся из кэша по SHA-256 до истечения их срока
+    public Claims parseVerifiedClaims(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        String digest = digest(token);
+        Claims cached = verifiedTokens.get(digest);
+        if (cached != null) {
+            if (cached.getExpiration() == null || cached.getExpiration().getTime() > System.currentTimeMillis()) {
+                return cached;
+            }
+            verifiedTokens.remove(digest);
+        }
 
-    public boolean validateJwtToken(String authToken) {
         try {
-            Jwts.parserBuilder().setSigningKey(secretKey).build().parseClaimsJws(authToken);
-            return true;
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            long ttl = VERIFIED_TOKEN_TTL_MS;
+            if (claims.getExpiration() != null) {
+                ttl = Math.min(ttl, claims.getExpiration().getTime() - System.currentTimeMillis());
+            }
+            if (ttl > 0) {
+                verifiedTokens.put(digest, claims, ttl);
+            }
+            return claims;
         } catch (ExpiredJwtException e) {
             logger.error("JWT token is expired: {}", e.getMessage());
         } catch (UnsupportedJwtException e) {
@@ -57,7 +88,16 @@ public class JwtUtils {
         } catch (IllegalArgumentException e) {
             logger.error("JWT token is empty: {}", e.getMessage());
         }
-        return false;
+        return null;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 
 }
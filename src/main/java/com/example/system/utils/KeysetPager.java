@@ -0,0 +1,105 @@
+package com.example.system.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.stereotype.Component;
+
+import com.example.system.dto.CursorPageDto;
+import com.example.system.dto.CursorPageRequest;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Постраничная выборка по ключу (keyset): следующая страница начинается с условия
+// "(sort, id) > значения последней строки", поэтому ее стоимость не зависит от глубины
+@Component
+public class KeysetPager {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public KeysetPager(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    // sortable — поля, по которым разрешена сортировка, и их типы; обязательно содержит id.
+    // Допускаются только NOT NULL колонки: сравнение с NULL ломает keyset-условие
+    public <T> CursorPageDto<T> page(JpaSpecificationExecutor<T> repository, Specification<T> filter,
+            CursorPageRequest request, Map<String, Class<?>> sortable) {
+        String sortProperty = request.sort() == null || request.sort().isEmpty() ? "id" : request.sort();
+        if (!sortable.containsKey(sortProperty)) {
+            throw new IllegalArgumentException("Сортировка по полю " + sortProperty + " не поддерживается");
+        }
+        Sort.Direction direction = request.direction() == null ? Sort.Direction.ASC : request.direction();
+        int limit = request.limit() == null ? DEFAULT_LIMIT : Math.max(1, Math.min(request.limit(), MAX_LIMIT));
+
+        Sort sort = Sort.by(direction, sortProperty);
+        if (!"id".equals(sortProperty)) {
+            sort = sort.and(Sort.by(direction, "id")); // id делает порядок однозначным при равных значениях
+        }
+        String signature = sortProperty + ":" + direction;
+        KeysetScrollPosition position = decode(request.cursor(), signature, sortable);
+
+        Specification<T> where = filter == null ? Specification.where(null) : filter;
+        Sort finalSort = sort;
+        Window<T> window = repository.findBy(where, query -> query.sortBy(finalSort).limit(limit).scroll(position));
+
+        String nextCursor = null;
+        if (window.hasNext() && !window.isEmpty()) {
+            nextCursor = encode((KeysetScrollPosition) window.positionAt(window.size() - 1), signature);
+        }
+        return new CursorPageDto<>(window.getContent(), nextCursor, window.hasNext());
+    }
+
+    private String encode(KeysetScrollPosition position, String signature) {
+        Map<String, Object> cursor = new LinkedHashMap<>();
+        cursor.put("s", signature);
+        cursor.put("k", position.getKeys());
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(cursor));
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось сформировать курсор", e);
+        }
+    }
+
+    private KeysetScrollPosition decode(String cursor, String signature, Map<String, Class<?>> sortable) {
+        if (cursor == null || cursor.isEmpty()) {
+            return ScrollPosition.keyset();
+        }
+        Map<String, Object> decoded;
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(cursor.getBytes(StandardCharsets.US_ASCII));
+            decoded = objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {});
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Некорректный курсор");
+        }
+        if (!signature.equals(decoded.get("s")) || !(decoded.get("k") instanceof Map<?, ?> rawKeys)) {
+            throw new IllegalArgumentException("Курсор получен для другой сортировки");
+        }
+
+        // После JSON числа теряют исходный тип (Integer/Long/Double), а перечисления и даты становятся строками
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> entry : rawKeys.entrySet()) {
+            String property = String.valueOf(entry.getKey());
+            Class<?> type = sortable.get(property);
+            if (type == null) {
+                throw new IllegalArgumentException("Некорректный курсор");
+            }
+            keys.put(property, objectMapper.convertValue(entry.getValue(), type));
+        }
+        return ScrollPosition.forward(keys);
+    }
+}
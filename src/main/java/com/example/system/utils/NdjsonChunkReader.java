@@ -0,0 +1,45 @@
+package com.example.system.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Newline-delimited JSON: по одному объекту в строке, пустые строки пропускаются.
+// Объекты читаются по мере поступления тела, как и в JsonArrayChunkReader
+public class NdjsonChunkReader<T> implements ChunkReader<T> {
+
+    private final ObjectMapper objectMapper;
+    private final Class<T> type;
+    private final int chunkSize;
+
+    public NdjsonChunkReader(ObjectMapper objectMapper, Class<T> type, int chunkSize) {
+        this.objectMapper = objectMapper;
+        this.type = type;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public long read(InputStream body, Consumer<List<T>> chunkConsumer) throws IOException {
+        long count = 0;
+        try (MappingIterator<T> values = objectMapper.readerFor(type).readValues(body)) {
+            List<T> chunk = new ArrayList<>(chunkSize);
+            while (values.hasNextValue()) {
+                chunk.add(values.nextValue());
+                count++;
+                if (chunk.size() == chunkSize) {
+                    chunkConsumer.accept(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                chunkConsumer.accept(chunk);
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.system.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.system.implementations.UserDetailsImpl;
+
+// Кэш аутентифицированных пользователей для AuthTokenFilter. Ключ — имя пользователя и время выдачи токена,
+// поэтому повторные запросы с тем же токеном не ходят в базу. Изменение пользователя сбрасывает его записи
+@Component
+public class PrincipalCache {
+
+    private static final int MAX_ENTRIES = 10_000;
+    private static final long TTL_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private final ExpiringLruCache<Key, UserDetailsImpl> cache = new ExpiringLruCache<>(MAX_ENTRIES, TTL_MS);
+    // Растет при каждом сбросе: загрузка, начатая до сброса, не должна положить в кэш старые данные
+    private final AtomicLong generation = new AtomicLong();
+
+    public UserDetailsImpl get(String username, long issuedAt, Supplier<UserDetailsImpl> loader) {
+        Key key = new Key(username, issuedAt);
+        UserDetailsImpl cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        long startGeneration = generation.get();
+        UserDetailsImpl loaded = loader.get();
+        synchronized (this) {
+            if (generation.get() == startGeneration) {
+                cache.put(key, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    // Вызывается внутри транзакции, меняющей пользователя. Сбрасываем сразу и еще раз после ее завершения:
+    // до коммита параллельный запрос мог прочитать и закэшировать еще не измененную строку
+    public void invalidateUser(Integer userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(userId);
+                }
+            });
+        }
+        evict(userId);
+    }
+
+    public long getHits() {
+        return cache.getHits();
+    }
+
+    public long getMisses() {
+        return cache.getMisses();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    private void evict(Integer userId) {
+        synchronized (this) {
+            generation.incrementAndGet();
+            cache.removeIf((key, principal) -> principal.getId().equals(userId));
+        }
+    }
+
+    private record Key(String username, long issuedAt) {
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.system.utils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.example.system.services.ChangeLogService;
+
+// Выполняется снаружи @Transactional, поэтому присоединившиеся вызовы не открывают свою транзакцию
+// и не занимают соединение из пула
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ReadCoalescingAspect {
+
+    private final ChangeLogService changeLogService;
+    private final ConcurrentHashMap<CallKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong executions = new AtomicLong();
+
+    @Autowired
+    public ReadCoalescingAspect(ChangeLogService changeLogService) {
+        this.changeLogService = changeLogService;
+    }
+
+    @Around("@annotation(coalescedRead)")
+    public Object coalesce(ProceedingJoinPoint joinPoint, CoalescedRead coalescedRead) throws Throwable {
+        calls.incrementAndGet();
+        CallKey key = new CallKey(
+                joinPoint.getSignature().toLongString(),
+                Arrays.asList(joinPoint.getArgs()),
+                changeLogService.renderedVersion(coalescedRead.value()));
+
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        executions.incrementAndGet();
+        try {
+            Object result = joinPoint.proceed();
+            flight.complete(result);
+            return result;
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    // Доля вызовов, обслуженных чужим запросом к базе
+    public double getCoalescingRatio() {
+        long total = calls.get();
+        return total == 0 ? 0.0 : (double) (total - executions.get()) / total;
+    }
+
+    private static Object await(CompletableFuture<Object> flight) throws Throwable {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            throw e.getCause() != null ? e.getCause() : e;
+        }
+    }
+
+    private record CallKey(String method, List<Object> args, long version) {
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.system.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.example.system.services.ChangeLogService;
+import com.example.system.services.ChangeLogService.EntityType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Хранит уже сериализованные ответы списочных эндпоинтов (JSON и gzip). Запись в таблицу меняет ее версию
+// в ChangeLogService, и первый же запрос после этого пересобирает байты; остальные просто копируют их в ответ
+@Component
+public class SerializedResponseCache {
+
+    private final ChangeLogService changeLogService;
+    private final ObjectMapper objectMapper;
+    private final Map<EntityType, CachedBody> bodies = new ConcurrentHashMap<>();
+    private final Map<EntityType, Object> rebuildLocks = new EnumMap<>(EntityType.class);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+
+    @Autowired
+    public SerializedResponseCache(ChangeLogService changeLogService, ObjectMapper objectMapper) {
+        this.changeLogService = changeLogService;
+        this.objectMapper = objectMapper;
+        for (EntityType type : EntityType.values()) {
+            rebuildLocks.put(type, new Object());
+        }
+    }
+
+    public void writeCollection(EntityType type, Supplier<?> loader,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // gzip и JSON — разные байты, поэтому и сильные ETag у них разные; Vary нужен и на ответе 304
+        boolean gzip = acceptsGzip(request);
+        String entityTag = changeLogService.entityTag(type) + (gzip ? "-gzip" : "");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (new ServletWebRequest(request, response).checkNotModified(entityTag)) {
+            return;
+        }
+
+        CachedBody body = getBody(type, loader);
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        byte[] bytes = body.json();
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            bytes = body.gzip();
+        }
+        response.setContentLength(bytes.length);
+        response.getOutputStream().write(bytes);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getRebuilds() {
+        return rebuilds.get();
+    }
+
+    private CachedBody getBody(EntityType type, Supplier<?> loader) throws IOException {
+        long version = changeLogService.renderedVersion(type);
+        CachedBody body = bodies.get(type);
+        if (body != null && body.version() == version) {
+            hits.incrementAndGet();
+            return body;
+        }
+
+        // Пересобирает один поток, остальные ждут и получают готовый результат
+        synchronized (rebuildLocks.get(type)) {
+            body = bodies.get(type);
+            if (body != null && body.version() == version) {
+                hits.incrementAndGet();
+                return body;
+            }
+            // Версия читается до загрузки данных: если запись успеет проскочить, тело окажется новее версии
+            // и будет пересобрано при следующем запросе, но устаревшим не будет никогда
+            byte[] json = objectMapper.writeValueAsBytes(loader.get());
+            body = new CachedBody(version, json, gzip(json));
+            bodies.put(type, body);
+            rebuilds.incrementAndGet();
+            return body;
+        }
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
+    private static byte[] gzip(byte[] json) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(json.length / 4, 64));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(json);
+        }
+        return buffer.toByteArray();
+    }
+
+    private record CachedBody(long version, byte[] json, byte[] gzip) {
+    }
+}
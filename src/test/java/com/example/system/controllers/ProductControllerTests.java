@@ -0,0 +1,67 @@
+package com.example.system.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.example.system.entities.Product;
+import com.example.system.services.ChangeLogService;
+import com.example.system.services.ChangeLogService.EntityType;
+import com.example.system.services.ProductService;
+import com.example.system.utils.SerializedResponseCache;
+
+// Условный GET продукта: совпавший If-None-Match отвечает 304, не обращаясь к сервису
+class ProductControllerTests {
+
+	private final ChangeLogService changeLogService = new ChangeLogService();
+	private ProductService productService;
+	private ProductController controller;
+
+	@BeforeEach
+	void setUp() {
+		productService = mock(ProductService.class);
+		controller = new ProductController(productService, changeLogService, mock(SerializedResponseCache.class));
+	}
+
+	@Test
+	void matchingTagAnswersNotModifiedWithoutLoading() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/1");
+		request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"" + changeLogService.entityTag(EntityType.PRODUCT) + "\"");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		ResponseEntity<Product> result = controller.getProductById(1, new ServletWebRequest(request, response));
+
+		assertNull(result);
+		assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+		verify(productService, never()).getProductById(1);
+	}
+
+	@Test
+	void nestedChangeInvalidatesProductTag() {
+		String staleTag = changeLogService.entityTag(EntityType.PRODUCT);
+		changeLogService.recordUpsert(EntityType.ORGANIZATION, () -> 5);
+		Product product = new Product();
+		when(productService.getProductById(1)).thenReturn(product);
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/1");
+		request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"" + staleTag + "\"");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		ResponseEntity<Product> result = controller.getProductById(1, new ServletWebRequest(request, response));
+
+		assertEquals(HttpStatus.OK, result.getStatusCode());
+		assertEquals(product, result.getBody());
+		assertEquals("\"" + changeLogService.entityTag(EntityType.PRODUCT) + "\"", response.getHeader(HttpHeaders.ETAG));
+	}
+}
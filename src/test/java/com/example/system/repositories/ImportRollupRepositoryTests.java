@@ -0,0 +1,81 @@
+package com.example.system.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+// Заполнение сверток по истории, записанной до появления колонок errorcount, bytesread и durationms.
+// Нужна PostgreSQL из .env; без нее тест пропускается. Работает в отдельной временной схеме
+class ImportRollupRepositoryTests {
+
+	private static final String SCHEMA = "rollup_test_" + System.nanoTime();
+
+	private SingleConnectionDataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() {
+		Dotenv dotenv = Dotenv.configure().ignoreIfMissing().load();
+		String url = dotenv.get("DB_URL");
+		Assumptions.assumeTrue(url != null, "DB_URL не задан");
+		dataSource = new SingleConnectionDataSource(url, dotenv.get("DB_USERNAME"), dotenv.get("DB_PASSWORD"), true);
+		try (Connection connection = dataSource.getConnection()) {
+			Assumptions.assumeTrue(connection.isValid(2), "PostgreSQL недоступна");
+		} catch (SQLException e) {
+			Assumptions.abort("PostgreSQL недоступна: " + e.getMessage());
+		}
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("CREATE SCHEMA " + SCHEMA);
+		jdbcTemplate.execute("SET search_path TO " + SCHEMA);
+		jdbcTemplate.execute("CREATE TABLE importhistory (id bigserial PRIMARY KEY, userid integer, "
+				+ "status varchar(255), successcount integer, errorcount integer, bytesread bigint, "
+				+ "durationms bigint, timestamp timestamp)");
+	}
+
+	@AfterEach
+	void tearDown() {
+		if (jdbcTemplate != null) {
+			jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+		}
+		if (dataSource != null) {
+			dataSource.destroy();
+		}
+	}
+
+	@Test
+	void backfillTreatsMissingCountersAsZero() {
+		jdbcTemplate.update("INSERT INTO importhistory (userid, status, successcount, timestamp) "
+				+ "VALUES (1, 'SUCCESS', 5, '2024-01-10 10:15'), (1, 'FAILED', NULL, '2024-01-10 10:45')");
+		jdbcTemplate.update("INSERT INTO importhistory (userid, status, successcount, errorcount, bytesread, "
+				+ "durationms, timestamp) VALUES (1, 'FAILED', 0, 3, 100, 40, '2024-01-10 11:05')");
+		ImportRollupRepository repository = new ImportRollupRepository(jdbcTemplate);
+		repository.createSchema();
+
+		assertEquals(3, repository.backfillIfEmpty());
+
+		Map<String, Object> day = jdbcTemplate.queryForMap("SELECT imports, succeeded, rows_imported, rows_failed, "
+				+ "bytes_read, duration_ms_sum FROM import_rollup WHERE granularity = 'DAY'");
+		assertEquals(3L, ((Number) day.get("imports")).longValue());
+		assertEquals(1L, ((Number) day.get("succeeded")).longValue());
+		assertEquals(5L, ((Number) day.get("rows_imported")).longValue());
+		assertEquals(3L, ((Number) day.get("rows_failed")).longValue());
+		assertEquals(100L, ((Number) day.get("bytes_read")).longValue());
+		assertEquals(40L, ((Number) day.get("duration_ms_sum")).longValue());
+		Long firstHourFailed = jdbcTemplate.queryForObject("SELECT rows_failed FROM import_rollup "
+				+ "WHERE granularity = 'HOUR' AND bucket_start = '2024-01-10 10:00'", Long.class);
+		assertEquals(0L, firstHourFailed);
+		// Повторный запуск ничего не добавляет
+		assertEquals(0, repository.backfillIfEmpty());
+	}
+}
@@ -0,0 +1,104 @@
+package com.example.system.services;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.system.entities.User;
+import com.example.system.implementations.UserDetailsImpl;
+import com.example.system.repositories.UserRepository;
+
+// Кэш прав администратора: сброс при изменении пользователя, повторный сброс после коммита
+// и ответ, прочитанный одновременно со сбросом, который в кэш не попадает
+class AuthorizationServiceTests {
+
+	private static final int USER_ID = 7;
+
+	private UserRepository userRepository;
+	private AuthorizationService authorizationService;
+
+	@BeforeEach
+	void setUp() {
+		userRepository = mock(UserRepository.class);
+		authorizationService = new AuthorizationService(userRepository);
+	}
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	void answerIsCachedUntilUserIsInvalidated() {
+		adminInDatabase(true);
+		assertTrue(authorizationService.isAdmin(USER_ID));
+		assertTrue(authorizationService.isAdmin(USER_ID));
+		verify(userRepository, times(1)).countByIdAndRoleAndApproved(USER_ID, User.Role.ADMIN, true);
+
+		adminInDatabase(false);
+		authorizationService.invalidateUser(USER_ID);
+
+		assertFalse(authorizationService.isAdmin(USER_ID));
+		verify(userRepository, times(2)).countByIdAndRoleAndApproved(USER_ID, User.Role.ADMIN, true);
+	}
+
+	@Test
+	void invalidationInTransactionIsRepeatedAfterCompletion() {
+		adminInDatabase(true);
+		TransactionSynchronizationManager.initSynchronization();
+		authorizationService.invalidateUser(USER_ID);
+		// Другой запрос читает еще не закоммиченное состояние и кэширует его
+		assertTrue(authorizationService.isAdmin(USER_ID));
+
+		adminInDatabase(false);
+		for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+			synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+		}
+		TransactionSynchronizationManager.clearSynchronization();
+
+		assertFalse(authorizationService.isAdmin(USER_ID));
+	}
+
+	@Test
+	void answerReadDuringInvalidationIsNotCached() {
+		when(userRepository.countByIdAndRoleAndApproved(USER_ID, User.Role.ADMIN, true)).thenAnswer(invocation -> {
+			// Пользователя меняют, пока идет запрос
+			authorizationService.invalidateUser(USER_ID);
+			return 1L;
+		}).thenReturn(0L);
+
+		assertTrue(authorizationService.isAdmin(USER_ID));
+		assertFalse(authorizationService.isAdmin(USER_ID));
+	}
+
+	@Test
+	void currentPrincipalIsAnsweredWithoutRepository() {
+		UserDetailsImpl principal = new UserDetailsImpl(USER_ID, "admin", "", User.Role.ADMIN.name(), true, List.of());
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+		assertTrue(authorizationService.isAdmin(USER_ID));
+		verify(userRepository, never()).countByIdAndRoleAndApproved(USER_ID, User.Role.ADMIN, true);
+	}
+
+	private void adminInDatabase(boolean admin) {
+		when(userRepository.countByIdAndRoleAndApproved(USER_ID, User.Role.ADMIN, true)).thenReturn(admin ? 1L : 0L);
+	}
+}
@@ -0,0 +1,210 @@
+package com.example.system.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+
+import com.example.system.dto.ImportResultDto;
+import com.example.system.entities.Product;
+import com.example.system.repositories.ImportBatchWriter;
+import com.example.system.repositories.ImportCopyWriter;
+import com.example.system.services.BulkImportService.ErrorPolicy;
+import com.example.system.services.BulkImportService.ImportOptions;
+import com.example.system.services.BulkImportService.TransactionScope;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Политики ошибок импорта поверх замоканных соединения и записи: видно, какие пачки коммитятся,
+// какие откатываются до точки сохранения и что попадает в итог; повторы распознаются до разбора тела
+class BulkImportServiceTests {
+
+	private Connection connection;
+	private ImportBatchWriter importBatchWriter;
+	private ImportValidator importValidator;
+	private ImportHistoryService importHistoryService;
+	private BulkImportService service;
+	// Номера строк, которые отклоняет проверка, и partNumber продуктов, запись которых отклоняет база
+	private final Set<Long> invalidRows = new HashSet<>();
+	private final Set<String> rejectedByDatabase = new HashSet<>();
+	private final List<String> insertedPartNumbers = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() throws Exception {
+		connection = mock(Connection.class);
+		when(connection.getAutoCommit()).thenReturn(true);
+		when(connection.setSavepoint()).thenAnswer(invocation -> mock(Savepoint.class));
+		DataSource dataSource = mock(DataSource.class);
+		when(dataSource.getConnection()).thenReturn(connection);
+
+		importBatchWriter = mock(ImportBatchWriter.class);
+		when(importBatchWriter.allocateIds(anyString(), anyInt())).thenAnswer(invocation ->
+				IntStream.rangeClosed(1, invocation.<Integer>getArgument(1)).boxed().toList());
+		when(importBatchWriter.findExistingIds(anyString(), anyCollection())).thenAnswer(invocation ->
+				new HashSet<>(invocation.<Collection<Integer>>getArgument(1)));
+		doAnswer(invocation -> {
+			List<Product> products = invocation.getArgument(0);
+			for (Product product : products) {
+				if (rejectedByDatabase.contains(product.getPartNumber())) {
+					throw new DataIntegrityViolationException("duplicate key " + product.getPartNumber());
+				}
+			}
+			products.forEach(product -> insertedPartNumbers.add(product.getPartNumber()));
+			return null;
+		}).when(importBatchWriter).insertProducts(any());
+
+		importValidator = mock(ImportValidator.class);
+		when(importValidator.validate(any(), anyLong(), any())).thenAnswer(invocation -> {
+			List<Product> chunk = invocation.getArgument(0);
+			long firstRow = invocation.getArgument(1);
+			Map<Long, ImportResultDto.RowError> errors = new LinkedHashMap<>();
+			for (long row = firstRow; row < firstRow + chunk.size(); row++) {
+				if (invalidRows.contains(row)) {
+					errors.put(row, new ImportResultDto.RowError(row, row, "invalid"));
+				}
+			}
+			return errors;
+		});
+		importHistoryService = mock(ImportHistoryService.class);
+
+		service = new BulkImportService(importBatchWriter, mock(ImportCopyWriter.class), importValidator,
+				importHistoryService, new ChangeLogService(), new ObjectMapper().findAndRegisterModules(),
+				new JdbcTemplate(dataSource), new JdbcTransactionManager(dataSource));
+	}
+
+	@Test
+	void skipInvalidInImportScopeCommitsValidRows() throws Exception {
+		invalidRows.add(2L);
+		rejectedByDatabase.add("PN-000000000003");
+
+		ImportResultDto result = service.runImport(body(4), 1, options(ErrorPolicy.SKIP_INVALID), rows -> {
+		});
+
+		assertEquals(List.of("PN-000000000001", "PN-000000000004"), insertedPartNumbers);
+		assertEquals(2, result.getImportedRows());
+		assertEquals(2, result.getFailedRows());
+		assertEquals("PARTIAL", result.getStatus());
+		// Одна транзакция на импорт, по точке сохранения на пачку; пачка, отклоненная базой, откатывается до своей
+		verify(connection, times(4)).setSavepoint();
+		verify(connection).rollback(any(Savepoint.class));
+		verify(connection, times(3)).releaseSavepoint(any(Savepoint.class));
+		verify(connection).commit();
+		verify(connection, never()).rollback();
+	}
+
+	@Test
+	void stopAtFirstErrorKeepsRowsBeforeTheError() throws Exception {
+		rejectedByDatabase.add("PN-000000000002");
+
+		ImportResultDto result = service.runImport(body(4), 1, options(ErrorPolicy.STOP_AT_FIRST_ERROR), rows -> {
+		});
+
+		assertEquals(List.of("PN-000000000001"), insertedPartNumbers);
+		assertEquals(1, result.getImportedRows());
+		verify(connection).commit();
+		verify(connection, never()).rollback();
+	}
+
+	@Test
+	void allOrNothingRollsBackEverything() throws Exception {
+		invalidRows.add(3L);
+
+		ImportResultDto result = service.runImport(body(4), 1, options(ErrorPolicy.ALL_OR_NOTHING), rows -> {
+		});
+
+		assertEquals("ERROR", result.getStatus());
+		assertEquals(0, result.getImportedRows());
+		verify(connection, never()).commit();
+		verify(connection).rollback();
+	}
+
+	@Test
+	void repeatedBodyReturnsPriorResultBeforeReadingInAnyScope() throws Exception {
+		ImportResultDto first = service.runImport(body(2), 1, chunkOptions(), rows -> {
+		});
+		ArgumentCaptor<ImportResultDto> recorded = ArgumentCaptor.forClass(ImportResultDto.class);
+		verify(importHistoryService).recordImportResult(eq(1), recorded.capture(), isNull());
+		String contentHash = recorded.getValue().getContentHash();
+		assertNotNull(contentHash);
+		when(importHistoryService.findPriorResult(1, null, contentHash)).thenReturn(first);
+		insertedPartNumbers.clear();
+
+		ImportResultDto repeated = service.runImport(body(2), 1, chunkOptions(), rows -> {
+			throw new AssertionError("тело повтора не должно разбираться");
+		});
+
+		assertSame(first, repeated);
+		assertEquals(List.of(), insertedPartNumbers);
+		verify(importHistoryService).recordImportResult(anyInt(), any(), any());
+	}
+
+	@Test
+	void idempotencyKeyIsCheckedBeforeContentHash() throws Exception {
+		ImportResultDto prior = new ImportResultDto();
+		when(importHistoryService.findPriorResult(1, "key-1", null)).thenReturn(prior);
+		ImportOptions options = chunkOptions();
+		options.setIdempotencyKey("key-1");
+
+		assertSame(prior, service.runImport(body(2), 1, options, rows -> {
+		}));
+		verify(importHistoryService, never()).findPriorResult(eq(1), isNull(), anyString());
+		verify(importBatchWriter, never()).insertProducts(any());
+	}
+
+	private static ImportOptions chunkOptions() {
+		ImportOptions options = options(ErrorPolicy.SKIP_INVALID);
+		options.setTransactionScope(TransactionScope.CHUNK);
+		return options;
+	}
+
+	private static ImportOptions options(ErrorPolicy policy) {
+		ImportOptions options = new ImportOptions();
+		options.setErrorPolicy(policy);
+		options.setTransactionScope(TransactionScope.IMPORT);
+		options.setChunkSize(1);
+		return options;
+	}
+
+	// Продукты ссылаются на существующих владельца и производителя, чтобы план не создавал вложенных сущностей
+	private static ByteArrayInputStream body(int products) {
+		StringBuilder json = new StringBuilder("[");
+		for (int i = 1; i <= products; i++) {
+			json.append(i > 1 ? "," : "").append(String.format("{\"name\":\"p%d\",\"partNumber\":\"PN-%012d\","
+					+ "\"price\":10,\"rating\":5,\"owner\":{\"id\":1},\"manufacturer\":{\"id\":1}}", i, i));
+		}
+		return new ByteArrayInputStream(json.append("]").toString().getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,133 @@
+package com.example.system.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.system.dto.ChangeSetDto;
+import com.example.system.services.ChangeLogService.EntityType;
+
+// Дельты и сбросы журнала изменений: вне транзакции изменения публикуются сразу,
+// коммит транзакции имитируется вызовом ее синхронизаций
+class ChangeLogServiceTests {
+
+	private final ChangeLogService changeLogService = new ChangeLogService();
+	// Какие id запрашивала дельта у "базы"
+	private final List<Collection<Integer>> loadedIds = new ArrayList<>();
+
+	@Test
+	void deltaListsOnlyChangesAfterSince() {
+		changeLogService.recordUpsert(EntityType.LOCATION, () -> 1);
+		long since = changeLogService.currentVersion(EntityType.LOCATION);
+		changeLogService.recordUpsert(EntityType.LOCATION, () -> 2);
+		changeLogService.recordDelete(EntityType.LOCATION, 3);
+
+		ChangeSetDto<Integer> changes = collect(EntityType.LOCATION, since, null);
+
+		assertFalse(changes.isReset());
+		assertEquals(List.of(2), changes.getUpserts());
+		assertEquals(List.of(3), changes.getDeletes());
+		assertEquals(changeLogService.currentVersion(EntityType.LOCATION), changes.getVersion());
+	}
+
+	@Test
+	void dependencyChangeExpandsToDependentIds() {
+		long since = changeLogService.renderedVersion(EntityType.PRODUCT);
+		changeLogService.recordUpsert(EntityType.PRODUCT, () -> 10);
+		changeLogService.recordUpsert(EntityType.ORGANIZATION, () -> 5);
+		changeLogService.recordUpsert(EntityType.LOCATION, () -> 7);
+
+		ChangeSetDto<Integer> changes = collect(EntityType.PRODUCT, since, Map.of(
+				EntityType.ORGANIZATION, List.of(10, 11),
+				EntityType.LOCATION, List.of(12)));
+
+		assertFalse(changes.isReset());
+		assertEquals(List.of(10, 11, 12), changes.getUpserts());
+	}
+
+	@Test
+	void dependencyChangeWithoutMappingReturnsFullSnapshot() {
+		long since = changeLogService.renderedVersion(EntityType.ORGANIZATION);
+		changeLogService.recordUpsert(EntityType.ADDRESS, () -> 4);
+
+		ChangeSetDto<Integer> changes = collect(EntityType.ORGANIZATION, since, null);
+
+		assertTrue(changes.isReset());
+		assertEquals(List.of(), loadedIds);
+	}
+
+	@Test
+	void deletedRowIsNotReloadedThroughDependency() {
+		long since = changeLogService.renderedVersion(EntityType.PRODUCT);
+		changeLogService.recordDelete(EntityType.PRODUCT, 10);
+		changeLogService.recordUpsert(EntityType.PERSON, () -> 3);
+
+		ChangeSetDto<Integer> changes = collect(EntityType.PRODUCT, since, Map.of(EntityType.PERSON, List.of(10)));
+
+		assertEquals(List.of(), changes.getUpserts());
+		assertEquals(List.of(10), changes.getDeletes());
+	}
+
+	@Test
+	void versionFromPreviousRunReturnsFullSnapshot() {
+		ChangeSetDto<Integer> changes = collect(EntityType.LOCATION, Long.MAX_VALUE, null);
+
+		assertTrue(changes.isReset());
+	}
+
+	@Test
+	void oversizedTransactionResetsLog() {
+		long since = changeLogService.currentVersion(EntityType.PERSON);
+		List<EntityType> resets = new ArrayList<>();
+		changeLogService.addListener(new ChangeLogService.ChangeListener() {
+			@Override
+			public void onChange(EntityType type, Integer id, ChangeLogService.Operation operation, long version) {
+			}
+
+			@Override
+			public void onReset(EntityType type, long version) {
+				resets.add(type);
+			}
+		});
+
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			for (int id = 1; id <= 10_001; id++) {
+				int rowId = id;
+				changeLogService.recordUpsert(EntityType.PERSON, () -> rowId);
+			}
+			for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+				synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+			}
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+
+		assertEquals(List.of(EntityType.PERSON), resets);
+		assertTrue(collect(EntityType.PERSON, since, null).isReset());
+		// После сброса журнал снова отдает дельты от новой версии
+		long afterReset = changeLogService.currentVersion(EntityType.PERSON);
+		changeLogService.recordUpsert(EntityType.PERSON, () -> 1);
+		assertEquals(List.of(1), collect(EntityType.PERSON, afterReset, null).getUpserts());
+	}
+
+	// Сущности в тестах — просто их id; dependents — ответ "базы" на поиск зависимых id по вложенной таблице
+	private ChangeSetDto<Integer> collect(EntityType type, long since, Map<EntityType, List<Integer>> dependents) {
+		return changeLogService.collectChanges(type, since,
+				() -> List.of(-1),
+				ids -> {
+					loadedIds.add(ids);
+					return List.copyOf(ids);
+				},
+				dependents == null ? null : (table, ids) -> dependents.getOrDefault(table, List.of()));
+	}
+}
@@ -0,0 +1,115 @@
+package com.example.system.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.system.dto.ImportResultDto.RowError;
+import com.example.system.entities.Color;
+import com.example.system.entities.Coordinates;
+import com.example.system.entities.Country;
+import com.example.system.entities.Organization;
+import com.example.system.entities.Person;
+import com.example.system.entities.Product;
+import com.example.system.repositories.ImportBatchWriter;
+
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+
+// Проверка строк импорта без Spring: настоящий Bean Validation и статические правила сервисов
+class ImportValidatorTests {
+
+	private ValidatorFactory validatorFactory;
+	private ImportBatchWriter importBatchWriter;
+	private ImportValidator importValidator;
+
+	@BeforeEach
+	void setUp() {
+		validatorFactory = Validation.buildDefaultValidatorFactory();
+		importBatchWriter = mock(ImportBatchWriter.class);
+		when(importBatchWriter.findExistingPartNumbers(anyCollection())).thenReturn(Set.of());
+		importValidator = new ImportValidator(importBatchWriter, validatorFactory.getValidator());
+	}
+
+	@AfterEach
+	void tearDown() {
+		importValidator.shutdown();
+		validatorFactory.close();
+	}
+
+	@Test
+	void acceptsValidRowsAndReportsAnnotationViolationsByPath() {
+		Product valid = product("PN-000000000001");
+		Product badCoordinates = product("PN-000000000002");
+		badCoordinates.getCoordinates().setX(-1000L);
+
+		Map<Long, RowError> errors = importValidator.validate(List.of(valid, badCoordinates), 10, new HashSet<>());
+
+		assertEquals(Set.of(11L), errors.keySet());
+		assertTrue(errors.get(11L).getMessage().startsWith("product.coordinates.x: "), errors.get(11L).getMessage());
+	}
+
+	@Test
+	void personLocationComesFromLinkInsteadOfAnnotation() {
+		Product product = product("PN-000000000001");
+		product.getOwner().setLinkLocationId(7);
+
+		assertTrue(importValidator.validate(List.of(product), 1, new HashSet<>()).isEmpty());
+	}
+
+	@Test
+	void checksNestedManufacturer() {
+		Product product = product("PN-000000000001");
+		product.getManufacturer().setEmployeesCount(0);
+
+		Map<Long, RowError> errors = importValidator.validate(List.of(product), 1, new HashSet<>());
+
+		assertTrue(errors.get(1L).getMessage().startsWith("organization.employeesCount: "), errors.get(1L).getMessage());
+	}
+
+	@Test
+	void rejectsPartNumbersRepeatedAcrossChunksAndExisting() {
+		when(importBatchWriter.findExistingPartNumbers(anyCollection())).thenReturn(Set.of("PN-000000000003"));
+		Set<String> seen = new HashSet<>(Set.of("PN-000000000001"));
+
+		Map<Long, RowError> errors = importValidator.validate(List.of(product("PN-000000000001"),
+				product("PN-000000000002"), product("PN-000000000002"), product("PN-000000000003")), 1, seen);
+
+		assertEquals(Set.of(1L, 3L, 4L), errors.keySet());
+		assertTrue(seen.contains("PN-000000000002"));
+	}
+
+	private static Product product(String partNumber) {
+		Coordinates coordinates = new Coordinates();
+		coordinates.setX(1L);
+		coordinates.setY(1);
+		Person owner = new Person();
+		owner.setName("Owner");
+		owner.setHairColor(Color.BROWN);
+		owner.setNationality(Country.RUSSIA);
+		owner.setLinkLocationId(1);
+		Organization manufacturer = new Organization();
+		manufacturer.setName("Maker");
+		manufacturer.setEmployeesCount(10);
+		Product product = new Product();
+		product.setName("Product");
+		product.setCoordinates(coordinates);
+		product.setPrice(10);
+		product.setRating(5.0);
+		product.setPartNumber(partNumber);
+		product.setOwner(owner);
+		product.setManufacturer(manufacturer);
+		return product;
+	}
+}
@@ -0,0 +1,109 @@
+package com.example.system.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+// Справедливость и лимиты допуска импортов; первая задача держит слот, пока тест ставит остальные в очередь
+class ImportSchedulerTests {
+
+	private ImportScheduler scheduler;
+	private final List<String> started = new CopyOnWriteArrayList<>();
+
+	@AfterEach
+	void tearDown() {
+		if (scheduler != null) {
+			scheduler.shutdown();
+		}
+	}
+
+	@Test
+	void slotsGoToUsersInTurn() throws Exception {
+		scheduler = new ImportScheduler(1, 1, 16, 1_000);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(5);
+		scheduler.submit(1, () -> {
+			started.add("a1");
+			await(release);
+			done.countDown();
+		});
+		// Пользователь 1 ставит пачку задач раньше, чем пользователи 2 и 3 — по одной
+		scheduler.submit(1, task("a2", done));
+		scheduler.submit(1, task("a3", done));
+		scheduler.submit(2, task("b1", done));
+		scheduler.submit(3, task("c1", done));
+
+		release.countDown();
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(List.of("a1", "a2", "b1", "c1", "a3"), started);
+	}
+
+	@Test
+	void userLimitLeavesSlotsForOthers() throws Exception {
+		scheduler = new ImportScheduler(2, 1, 16, 1_000);
+		CountDownLatch release = new CountDownLatch(1);
+		scheduler.submit(1, () -> await(release));
+		scheduler.submit(1, () -> started.add("a2"));
+
+		// Второй слот свободен, но пользователю 1 не положен: его получает пользователь 2
+		try (ImportScheduler.Ticket ticket = scheduler.acquire(2)) {
+			assertEquals(2, scheduler.snapshot().get("active"));
+			assertEquals(1, scheduler.snapshot().get("queued"));
+			assertFalse(started.contains("a2"));
+		} finally {
+			release.countDown();
+		}
+	}
+
+	@Test
+	void acquireGivesUpAfterAdmissionTimeout() throws Exception {
+		scheduler = new ImportScheduler(1, 1, 16, 50);
+		try (ImportScheduler.Ticket held = scheduler.acquire(1)) {
+			assertThrows(RejectedExecutionException.class, () -> scheduler.acquire(2));
+			assertEquals(0, scheduler.snapshot().get("queued"));
+			assertEquals(1L, scheduler.snapshot().get("timeouts"));
+		}
+	}
+
+	@Test
+	void queuedTicketCanBeCancelled() throws Exception {
+		scheduler = new ImportScheduler(1, 1, 16, 1_000);
+		try (ImportScheduler.Ticket held = scheduler.acquire(1)) {
+			ImportScheduler.Ticket queued = scheduler.submit(2, () -> started.add("b1"));
+			assertTrue(queued.cancel());
+			assertFalse(held.cancel());
+		}
+		assertEquals(List.of(), started);
+	}
+
+	@Test
+	void rejectsConfigurationWithoutSlots() {
+		assertThrows(IllegalArgumentException.class, () -> new ImportScheduler(0, 1, 16, 1_000));
+	}
+
+	private Runnable task(String name, CountDownLatch done) {
+		return () -> {
+			started.add(name);
+			done.countDown();
+		};
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
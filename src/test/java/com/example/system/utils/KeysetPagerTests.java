@@ -0,0 +1,127 @@
+package com.example.system.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.repository.query.FluentQuery.FetchableFluentQuery;
+
+import com.example.system.dto.CursorPageDto;
+import com.example.system.dto.CursorPageRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Курсоры keyset-страниц: ключи последней строки переживают кодирование в строку вместе со своими типами,
+// а курсор от другой сортировки или испорченный курсор отклоняются
+class KeysetPagerTests {
+
+	private static final Map<String, Class<?>> SORTABLE = Map.of("id", Integer.class, "price", Long.class);
+
+	private record Row(Integer id, long price) {
+	}
+
+	private final KeysetPager pager = new KeysetPager(new ObjectMapper());
+	private JpaSpecificationExecutor<Row> repository;
+	private FetchableFluentQuery<Row> query;
+	// Позиции, с которых запрашивались страницы, и ответ "базы" на следующий запрос
+	private final List<ScrollPosition> positions = new ArrayList<>();
+	private List<Row> nextRows = List.of();
+	private boolean nextHasMore;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		repository = mock(JpaSpecificationExecutor.class);
+		query = mock(FetchableFluentQuery.class);
+		when(query.sortBy(any())).thenReturn(query);
+		when(query.limit(anyInt())).thenReturn(query);
+		when(query.scroll(any())).thenAnswer(invocation -> {
+			positions.add(invocation.getArgument(0));
+			List<Row> rows = nextRows;
+			return Window.from(rows, index -> {
+				Map<String, Object> keys = new LinkedHashMap<>();
+				keys.put("price", rows.get(index).price());
+				keys.put("id", rows.get(index).id());
+				return ScrollPosition.forward(keys);
+			}, nextHasMore);
+		});
+		when(repository.findBy(any(), any())).thenAnswer(invocation ->
+				invocation.<Function<FetchableFluentQuery<Row>, Object>>getArgument(1).apply(query));
+	}
+
+	@Test
+	void cursorRoundTripRestoresKeysWithTheirTypes() {
+		respond(true, new Row(1, 10), new Row(2, 20));
+		CursorPageDto<Row> first = pager.page(repository, null, request(null, 2), SORTABLE);
+
+		assertTrue(first.isHasNext());
+		assertNotNull(first.getNextCursor());
+		assertTrue(((KeysetScrollPosition) positions.get(0)).isInitial());
+
+		respond(false, new Row(3, 30));
+		CursorPageDto<Row> second = pager.page(repository, null, request(first.getNextCursor(), 2), SORTABLE);
+
+		Map<String, Object> keys = ((KeysetScrollPosition) positions.get(1)).getKeys();
+		assertEquals(Map.of("price", 20L, "id", 2), keys);
+		assertEquals(Long.class, keys.get("price").getClass());
+		assertFalse(second.isHasNext());
+		assertNull(second.getNextCursor());
+		assertEquals(List.of(new Row(3, 30)), second.getItems());
+	}
+
+	@Test
+	void cursorFromAnotherSortIsRejected() {
+		respond(true, new Row(1, 10));
+		String cursor = pager.page(repository, null, request(null, 1), SORTABLE).getNextCursor();
+
+		CursorPageRequest descending = new CursorPageRequest(cursor, 1, "price", Sort.Direction.DESC);
+		assertThrows(IllegalArgumentException.class, () -> pager.page(repository, null, descending, SORTABLE));
+		CursorPageRequest byId = new CursorPageRequest(cursor, 1, "id", Sort.Direction.ASC);
+		assertThrows(IllegalArgumentException.class, () -> pager.page(repository, null, byId, SORTABLE));
+	}
+
+	@Test
+	void malformedCursorAndUnknownSortAreRejected() {
+		assertThrows(IllegalArgumentException.class,
+				() -> pager.page(repository, null, request("not a cursor", 1), SORTABLE));
+		CursorPageRequest unknownSort = new CursorPageRequest(null, 1, "name", Sort.Direction.ASC);
+		assertThrows(IllegalArgumentException.class, () -> pager.page(repository, null, unknownSort, SORTABLE));
+	}
+
+	@Test
+	void limitIsClamped() {
+		respond(false);
+		pager.page(repository, null, request(null, 100_000), SORTABLE);
+
+		verify(query).limit(KeysetPager.MAX_LIMIT);
+	}
+
+	private void respond(boolean hasMore, Row... rows) {
+		nextRows = List.of(rows);
+		nextHasMore = hasMore;
+	}
+
+	private static CursorPageRequest request(String cursor, int limit) {
+		return new CursorPageRequest(cursor, limit, "price", Sort.Direction.ASC);
+	}
+}
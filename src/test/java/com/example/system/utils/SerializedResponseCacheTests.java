@@ -0,0 +1,94 @@
+package com.example.system.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.example.system.services.ChangeLogService;
+import com.example.system.services.ChangeLogService.EntityType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Ответы списков из кэша: 304 по ETag, отдельный ETag для gzip и пересборка только после изменения таблицы
+class SerializedResponseCacheTests {
+
+	private final ChangeLogService changeLogService = new ChangeLogService();
+	private final SerializedResponseCache cache = new SerializedResponseCache(changeLogService, new ObjectMapper());
+	private final AtomicInteger loads = new AtomicInteger();
+	private final Supplier<List<String>> loader = () -> {
+		loads.incrementAndGet();
+		return List.of("a", "b");
+	};
+
+	@Test
+	void repeatedRequestWithTagGetsNotModifiedWithoutLoading() throws IOException {
+		MockHttpServletResponse first = get(null, null);
+		String entityTag = first.getHeader(HttpHeaders.ETAG);
+
+		MockHttpServletResponse second = get(entityTag, null);
+
+		assertEquals(HttpStatus.OK.value(), first.getStatus());
+		assertEquals("[\"a\",\"b\"]", first.getContentAsString());
+		assertEquals(HttpStatus.NOT_MODIFIED.value(), second.getStatus());
+		assertEquals(0, second.getContentLength());
+		assertEquals(HttpHeaders.ACCEPT_ENCODING, second.getHeader(HttpHeaders.VARY));
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void gzipBodyHasItsOwnTag() throws IOException {
+		MockHttpServletResponse plain = get(null, null);
+		MockHttpServletResponse gzip = get(null, "gzip, deflate");
+
+		assertNotEquals(plain.getHeader(HttpHeaders.ETAG), gzip.getHeader(HttpHeaders.ETAG));
+		assertEquals("gzip", gzip.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertNull(plain.getHeader(HttpHeaders.CONTENT_ENCODING));
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip.getContentAsByteArray()))) {
+			assertArrayEquals(plain.getContentAsByteArray(), in.readAllBytes());
+		}
+		// Тег несжатого ответа не подходит сжатому, и наоборот: кэш не подменит одно тело другим
+		assertEquals(HttpStatus.OK.value(), get(plain.getHeader(HttpHeaders.ETAG), "gzip").getStatus());
+		assertEquals(HttpStatus.OK.value(), get(gzip.getHeader(HttpHeaders.ETAG), null).getStatus());
+		assertEquals(HttpStatus.NOT_MODIFIED.value(), get(gzip.getHeader(HttpHeaders.ETAG), "gzip").getStatus());
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void changeRebuildsBodyAndTag() throws IOException {
+		String staleTag = get(null, null).getHeader(HttpHeaders.ETAG);
+		changeLogService.recordUpsert(EntityType.LOCATION, () -> 1);
+
+		MockHttpServletResponse response = get(staleTag, null);
+
+		assertEquals(HttpStatus.OK.value(), response.getStatus());
+		assertNotEquals(staleTag, response.getHeader(HttpHeaders.ETAG));
+		assertEquals(2, loads.get());
+		assertEquals(2, cache.getRebuilds());
+	}
+
+	private MockHttpServletResponse get(String ifNoneMatch, String acceptEncoding) throws IOException {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/locations");
+		if (ifNoneMatch != null) {
+			request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+		}
+		if (acceptEncoding != null) {
+			request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+		}
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		cache.writeCollection(EntityType.LOCATION, loader, request, response);
+		return response;
+	}
+}